@@ -0,0 +1,43 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of opening connection through driver, when opening real connection costs nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectBenchmark {
+
+    @Param({"sequential", "parallel", "hedged"})
+    public String probeMode;
+
+    private final Connection realConnection = StubConnections.galeraNode();
+    private final MysclusconDriver driver = new MysclusconDriver() {
+        @Override
+        protected Connection openRealConnection(Properties info, String connectUrl) {
+            return realConnection;
+        }
+    };
+    private final Properties info = new Properties();
+    private String jdbcUrl;
+
+    @Setup
+    public void setup() {
+        jdbcUrl = "jdbc:myscluscon:mysql:galera://A:3306,B:3306,C:3306/database?connectTimeout=500&probeMode=" + probeMode;
+    }
+
+    @Benchmark
+    public Connection connect() throws SQLException {
+        return driver.connect(jdbcUrl, info);
+    }
+}
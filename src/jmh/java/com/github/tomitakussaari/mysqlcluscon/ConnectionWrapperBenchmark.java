@@ -0,0 +1,44 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per call overhead of connection returned by driver, compared to calling real connection directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionWrapperBenchmark {
+
+    private final Connection realConnection = StubConnections.galeraNode();
+    private final Connection wrappedConnection = new MysclusconDriver()
+            .createProxyConnection((conn, timeout) -> ConnectionStatus.OK, realConnection, ConnectionStatus.STOPPED, ConnectionStatus.OK);
+
+    @Benchmark
+    public boolean rawGetAutoCommit() throws SQLException {
+        return realConnection.getAutoCommit();
+    }
+
+    @Benchmark
+    public boolean wrappedGetAutoCommit() throws SQLException {
+        return wrappedConnection.getAutoCommit();
+    }
+
+    @Benchmark
+    public PreparedStatement rawPrepareStatement() throws SQLException {
+        return realConnection.prepareStatement("SELECT 1");
+    }
+
+    @Benchmark
+    public PreparedStatement wrappedPrepareStatement() throws SQLException {
+        return wrappedConnection.prepareStatement("SELECT 1");
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Choosing best connection when none of the servers was OK.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindBestConnectionBenchmark {
+
+    private static final ConnectionStatus[] notOkStatuses = {ConnectionStatus.DEAD, ConnectionStatus.STOPPED, ConnectionStatus.BEHIND};
+
+    @Param({"3", "100"})
+    public int connectionCount;
+
+    private final MysclusconDriver driver = new MysclusconDriver();
+    private List<ConnectionInfo> connections;
+
+    @Setup
+    public void setup() {
+        connections = IntStream.range(0, connectionCount)
+                .mapToObj(i -> new ConnectionInfo("server" + i + ":3306", null, (conn, timeout) -> notOkStatuses[i % notOkStatuses.length]))
+                .collect(Collectors.toList());
+        connections.forEach(ConnectionInfo::getStatus);
+    }
+
+    @Benchmark
+    public Optional<ConnectionInfo> findBestConnection() {
+        return driver.findBestConnection(connections, ConnectionStatus.STOPPED);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Filtering blacklisted servers from server list, when every tenth server is blacklisted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerBlackListBenchmark {
+
+    @Param({"3", "100", "1000"})
+    public int serverCount;
+
+    private final ServerBlackList serverBlackList = new ServerBlackList();
+    private List<String> servers;
+
+    @Setup
+    public void setup() {
+        servers = IntStream.range(0, serverCount).mapToObj(i -> "server" + i + ":3306").collect(Collectors.toList());
+        IntStream.range(0, serverCount).filter(i -> i % 10 == 0).forEach(i -> serverBlackList.blackList(servers.get(i)));
+    }
+
+    @Benchmark
+    public List<String> withoutBlackListed() {
+        return serverBlackList.withoutBlackListed(servers);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Minimal in-memory JDBC objects, so that benchmarks measure driver code instead of network or mocking library.
+ */
+class StubConnections {
+
+    private StubConnections() {
+    }
+
+    /**
+     * @return connection to galera node that reports wsrep_ready=ON
+     */
+    static Connection galeraNode() {
+        final Statement statement = stub(Statement.class, (method, args) -> method.equals("executeQuery") ? wsrepReady() : null);
+        final PreparedStatement preparedStatement = stub(PreparedStatement.class, (method, args) -> null);
+        return stub(Connection.class, (method, args) -> {
+            switch(method) {
+                case "isValid": return true;
+                case "getAutoCommit": return true;
+                case "createStatement": return statement;
+                case "prepareStatement": return preparedStatement;
+                default: return null;
+            }
+        });
+    }
+
+    private static ResultSet wsrepReady() {
+        final boolean[] onRow = new boolean[1];
+        return stub(ResultSet.class, (method, args) -> {
+            switch(method) {
+                case "next": return onRow[0] = !onRow[0];
+                case "getString": return "Value".equals(args[0]) ? "ON" : "wsrep_ready";
+                default: return null;
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+
+    private static <T> T stub(Class<T> iface, Answer answer) {
+        return iface.cast(Proxy.newProxyInstance(StubConnections.class.getClassLoader(), new Class[]{iface},
+                (proxy, method, args) -> answer.answer(method.getName(), args)));
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URLHelpersBenchmark {
+
+    private final String jdbcUrl = "jdbc:myscluscon:mysql:read_cluster://serverOne:3306,serverTwo:3306,serverThree:3306/database" +
+            "?connectTimeout=500&socketTimeout=60000&characterEncoding=UTF-8&maxSlaveLag=2&connectionStatus=BEHIND";
+
+    @Benchmark
+    public URLHelpers.URLInfo parse() throws SQLException {
+        return URLHelpers.parse(jdbcUrl);
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Like {@link ConcurrentServerProbe}, but no thread waits for attempts to complete: each attempt is run as its own task
+ * in executor, and next one is started when it completes. Hedge delays are waited with scheduler.
+ */
+class AsyncServerProbe {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncServerProbe.class.getName());
+    private static final long noHedging = -1;
+
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final Iterator<String> servers;
+    private final Function<String, Optional<ConnectionInfo>> connector;
+    private final int initialAttempts;
+    private final int maxConcurrentAttempts;
+    private final long hedgeDelayInMs;
+    private final CompletableFuture<Optional<ConnectionInfo>> result = new CompletableFuture<>();
+    private final List<ConnectionInfo> candidates = new ArrayList<>();
+    private Predicate<ConnectionInfo> bestPossible;
+    private Function<List<ConnectionInfo>, Optional<ConnectionInfo>> bestOf;
+    private int runningAttempts;
+    private int completedAttempts;
+    private boolean decided;
+
+    private AsyncServerProbe(Executor executor, ScheduledExecutorService scheduler, List<String> servers, int initialAttempts,
+                             int maxConcurrentAttempts, long hedgeDelayInMs, Function<String, Optional<ConnectionInfo>> connector) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.servers = servers.iterator();
+        this.connector = connector;
+        this.initialAttempts = initialAttempts;
+        this.maxConcurrentAttempts = maxConcurrentAttempts;
+        this.hedgeDelayInMs = hedgeDelayInMs;
+    }
+
+    static AsyncServerProbe sequential(Executor executor, List<String> servers, Function<String, Optional<ConnectionInfo>> connector) {
+        return new AsyncServerProbe(executor, null, servers, 1, 1, noHedging, connector);
+    }
+
+    static AsyncServerProbe parallel(Executor executor, List<String> servers, int parallelism,
+                                     Function<String, Optional<ConnectionInfo>> connector) {
+        return new AsyncServerProbe(executor, null, servers, parallelism, parallelism, noHedging, connector);
+    }
+
+    static AsyncServerProbe hedged(Executor executor, ScheduledExecutorService scheduler, List<String> servers, int maxConcurrentAttempts,
+                                   long hedgeDelayInMs, Function<String, Optional<ConnectionInfo>> connector) {
+        return new AsyncServerProbe(executor, scheduler, servers, 1, maxConcurrentAttempts, hedgeDelayInMs, connector);
+    }
+
+    /**
+     * Completes with first connection that is best possible, or when all servers have been tried, with best of others.
+     * Connections that were not chosen are closed, also those completing after result.
+     */
+    CompletableFuture<Optional<ConnectionInfo>> start(Predicate<ConnectionInfo> bestPossible,
+                                                      Function<List<ConnectionInfo>, Optional<ConnectionInfo>> bestOf) {
+        completeWith(startAttempts(bestPossible, bestOf));
+        return result;
+    }
+
+    private synchronized Optional<ConnectionInfo> startAttempts(Predicate<ConnectionInfo> bestPossible,
+                                                                Function<List<ConnectionInfo>, Optional<ConnectionInfo>> bestOf) {
+        this.bestPossible = bestPossible;
+        this.bestOf = bestOf;
+        while(!decided && runningAttempts < initialAttempts && servers.hasNext()) {
+            startNextAttempt();
+        }
+        return bestIfAllTried();
+    }
+
+    private void startNextAttempt() {
+        final String server = servers.next();
+        runningAttempts++;
+        CompletableFuture.supplyAsync(() -> connector.apply(server), executor)
+                .whenComplete((connection, error) -> completeWith(completed(connection != null ? connection : Optional.empty())));
+        if(hedgeDelayInMs != noHedging) {
+            final int completedWhenStarted = completedAttempts;
+            scheduler.schedule(() -> hedge(completedWhenStarted), hedgeDelayInMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void hedge(int completedWhenStarted) {
+        if(!decided && completedAttempts == completedWhenStarted && runningAttempts < maxConcurrentAttempts && servers.hasNext()) {
+            LOGGER.fine(() -> "No connection attempt completed in " + hedgeDelayInMs + "ms, starting another one");
+            startNextAttempt();
+        }
+    }
+
+    /**
+     * @return chosen connection, or null when not yet decided
+     */
+    private synchronized Optional<ConnectionInfo> completed(Optional<ConnectionInfo> connection) {
+        runningAttempts--;
+        completedAttempts++;
+        if(decided) {
+            connection.ifPresent(ConnectionInfo::close);
+            return null;
+        }
+        if(connection.isPresent() && bestPossible.test(connection.get())) {
+            return decide(connection);
+        }
+        connection.ifPresent(candidates::add);
+        if(servers.hasNext()) {
+            startNextAttempt();
+        }
+        return bestIfAllTried();
+    }
+
+    private Optional<ConnectionInfo> bestIfAllTried() {
+        if(runningAttempts > 0 || servers.hasNext() || decided) {
+            return null;
+        }
+        return decide(bestOf.apply(candidates));
+    }
+
+    private Optional<ConnectionInfo> decide(Optional<ConnectionInfo> chosen) {
+        decided = true;
+        chosen.ifPresent(candidates::remove);
+        candidates.forEach(ConnectionInfo::close);
+        candidates.clear();
+        return chosen;
+    }
+
+    /**
+     * Outside of lock, as completing runs dependent stages
+     */
+    private void completeWith(Optional<ConnectionInfo> chosen) {
+        if(chosen != null) {
+            result.complete(chosen);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Status of server, with replication lag or length of Galera receive queue, and transactions replica has executed,
+ * when checker was able to find them out.
+ */
+@RequiredArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class CheckResult {
+
+    private final ConnectionStatus status;
+    private final OptionalLong replicationLagInSeconds;
+    private final OptionalLong receiveQueueLength;
+    private final Optional<GtidSet> executedGtidSet;
+
+    public static CheckResult of(ConnectionStatus status) {
+        return new CheckResult(status, OptionalLong.empty(), OptionalLong.empty(), Optional.empty());
+    }
+
+    public static CheckResult of(ConnectionStatus status, long replicationLagInSeconds) {
+        return new CheckResult(status, OptionalLong.of(replicationLagInSeconds), OptionalLong.empty(), Optional.empty());
+    }
+
+    public static CheckResult withReceiveQueue(ConnectionStatus status, long receiveQueueLength) {
+        return new CheckResult(status, OptionalLong.empty(), OptionalLong.of(receiveQueueLength), Optional.empty());
+    }
+
+    public CheckResult withExecutedGtidSet(GtidSet executedGtidSet) {
+        return new CheckResult(status, replicationLagInSeconds, receiveQueueLength, Optional.of(executedGtidSet));
+    }
+}
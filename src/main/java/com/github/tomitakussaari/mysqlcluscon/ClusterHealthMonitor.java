@@ -0,0 +1,271 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.RequiredArgsConstructor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one probe connection open to each server of cluster, and refreshes status of each server periodically,
+ * so that status does not need to be queried when opening new connections. Same statement of probe connection
+ * is used for every status check.
+ * <p>
+ * Servers are checked in parallel in given executor, so that refresh of large cluster takes as long as slowest check.
+ * Scheduler only starts refreshes and never waits for checks, and new refresh is not started while previous one is still in progress.
+ */
+class ClusterHealthMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterHealthMonitor.class.getName());
+
+    private final Supplier<List<String>> servers;
+    private final Function<String, ConnectionChecker> connectionCheckers;
+    private final ProbeConnectionOpener connectionOpener;
+    private final ClusterState cluster;
+    private final Map<String, ConnectionStatus> serverStatuses = new ConcurrentHashMap<>();
+    private final Map<String, ProbeConnection> probeConnections = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Void>> refreshInProgress = new AtomicReference<>();
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private ScheduledFuture<?> scheduledRefresh;
+    private volatile boolean stopped;
+    private Executor checkExecutor = Runnable::run;
+
+    ClusterHealthMonitor(List<String> servers, ConnectionChecker connectionChecker, ProbeConnectionOpener connectionOpener) {
+        this(servers, connectionChecker, connectionOpener, new ClusterState(new ServerBlackList()));
+    }
+
+    ClusterHealthMonitor(List<String> servers, ConnectionChecker connectionChecker, ProbeConnectionOpener connectionOpener,
+                         ClusterState cluster) {
+        this(() -> servers, server -> connectionChecker, connectionOpener, cluster);
+    }
+
+    /**
+     * @param servers asked again on every refresh, so that servers can be added to and removed from cluster
+     * @param connectionCheckers checker for each server
+     * @param cluster where time taken by each status check and replication lag of each server is recorded
+     */
+    ClusterHealthMonitor(Supplier<List<String>> servers, Function<String, ConnectionChecker> connectionCheckers,
+                         ProbeConnectionOpener connectionOpener, ClusterState cluster) {
+        this.servers = servers;
+        this.connectionCheckers = connectionCheckers;
+        this.connectionOpener = connectionOpener;
+        this.cluster = cluster;
+    }
+
+    @FunctionalInterface
+    interface ProbeConnectionOpener {
+        Connection open(String server) throws SQLException;
+    }
+
+    /**
+     * Told about status of server when it is first seen, and whenever it changes, in thread that checked it
+     */
+    @FunctionalInterface
+    interface StatusListener {
+        void statusChanged(String server, ConnectionStatus status);
+    }
+
+    /**
+     * @return false if listener was already added
+     */
+    boolean addStatusListener(StatusListener listener) {
+        return statusListeners.add(listener);
+    }
+
+    void removeStatusListener(StatusListener listener) {
+        statusListeners.remove(listener);
+    }
+
+    /**
+     * @param checkExecutor where status of each server is checked, scheduler only starts refreshes
+     */
+    synchronized ClusterHealthMonitor start(ScheduledExecutorService scheduler, Executor checkExecutor, long refreshIntervalInMs) {
+        if(scheduledRefresh == null && !stopped) {
+            this.checkExecutor = checkExecutor;
+            scheduledRefresh = scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalInMs, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Stops refreshing and closes probe connections. Refresh that is still in progress does not open new probe connections,
+     * and closes ones that it opened after this. Statuses are forgotten, as they would no longer be up to date.
+     */
+    synchronized void stop() {
+        stopped = true;
+        if(scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+        new ArrayList<>(probeConnections.keySet()).forEach(this::closeProbeConnection);
+        serverStatuses.clear();
+    }
+
+    /**
+     * Starts to check status of each server in check executor, without waiting for checks to complete.
+     * When previous refresh is still in progress, no new refresh is started.
+     *
+     * @return refresh in progress, completed when status of each server has been checked
+     */
+    CompletableFuture<Void> refresh() {
+        if(stopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> refresh = new CompletableFuture<>();
+        if(!refreshInProgress.compareAndSet(null, refresh)) {
+            LOGGER.fine("Previous refresh of servers is still in progress");
+            final CompletableFuture<Void> previous = refreshInProgress.get();
+            return previous != null ? previous : CompletableFuture.completedFuture(null);
+        }
+        try {
+            final List<String> currentServers = servers.get();
+            final List<CompletableFuture<Void>> checks = new ArrayList<>();
+            checks.add(CompletableFuture.runAsync(() -> forgetRemovedServers(currentServers), checkExecutor));
+            currentServers.forEach(server -> checks.add(CompletableFuture.runAsync(() -> refreshQuietly(server), checkExecutor)));
+            CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, e) -> refreshed(refresh));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to start refresh of servers", e);
+            refreshed(refresh);
+        }
+        return refresh;
+    }
+
+    private void refreshed(CompletableFuture<Void> refresh) {
+        refreshInProgress.set(null);
+        refresh.complete(null);
+    }
+
+    Optional<ConnectionStatus> status(String server) {
+        return Optional.ofNullable(serverStatuses.get(server));
+    }
+
+    Map<String, ConnectionStatus> statuses() {
+        return serverStatuses;
+    }
+
+    /**
+     * @return those of given servers, whose latest known status is at least wanted, best status first.
+     * Servers with same status keep their original order.
+     */
+    List<String> serversWithStatusAtLeast(List<String> candidates, ConnectionStatus wantedConnectionStatus) {
+        return candidates.stream()
+                .filter(server -> status(server).filter(status -> status.priority >= wantedConnectionStatus.priority).isPresent())
+                .sorted(Comparator.comparing((String server) -> serverStatuses.get(server).priority).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void refreshQuietly(String server) {
+        try {
+            refresh(server);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error while refreshing status of " + server, e);
+        }
+    }
+
+    private void refresh(String server) {
+        if(stopped) {
+            return;
+        }
+        final ConnectionStatus status = probeConnection(server)
+                .map(probeConnection -> checkStatus(server, probeConnection.statement))
+                .orElse(ConnectionStatus.DEAD);
+        if(stopped) {
+            closeProbeConnection(server);
+            return;
+        }
+        if(status == ConnectionStatus.DEAD) {
+            closeProbeConnection(server);
+        }
+        final ConnectionStatus previous = serverStatuses.put(server, status);
+        if(previous != status) {
+            LOGGER.info(() -> "Status of " + server + " changed from " + previous + " to " + status);
+            if(previous == ConnectionStatus.DEAD) {
+                cluster.recovered(server, System.currentTimeMillis());
+            }
+            statusListeners.forEach(listener -> listener.statusChanged(server, status));
+        }
+    }
+
+    private ConnectionStatus checkStatus(String server, Statement statement) {
+        final long start = System.nanoTime();
+        final CheckResult checkResult = connectionCheckers.apply(server).check(statement, 1);
+        if(checkResult.getStatus() != ConnectionStatus.DEAD) {
+            cluster.serverLatencies.record(server, System.nanoTime() - start);
+        }
+        cluster.replicationLags.record(server, checkResult);
+        cluster.replicationPositions.record(server, checkResult);
+        return checkResult.getStatus();
+    }
+
+    private void forgetRemovedServers(List<String> currentServers) {
+        new ArrayList<>(serverStatuses.keySet()).stream()
+                .filter(server -> !currentServers.contains(server))
+                .forEach(server -> {
+                    LOGGER.info(() -> "Server " + server + " is no longer part of cluster");
+                    closeProbeConnection(server);
+                    serverStatuses.remove(server);
+                });
+    }
+
+    private Optional<ProbeConnection> probeConnection(String server) {
+        ProbeConnection probeConnection = probeConnections.get(server);
+        if(probeConnection == null) {
+            try {
+                probeConnection = ProbeConnection.open(connectionOpener.open(server));
+                probeConnections.put(server, probeConnection);
+            } catch (Exception e) {
+                LOGGER.fine(() -> "Unable to open probe connection to " + server + " " + e.getMessage());
+            }
+        }
+        return Optional.ofNullable(probeConnection);
+    }
+
+    private void closeProbeConnection(String server) {
+        Optional.ofNullable(probeConnections.remove(server)).ifPresent(probeConnection -> {
+            close(probeConnection.statement);
+            close(probeConnection.connection);
+        });
+    }
+
+    @RequiredArgsConstructor
+    private static class ProbeConnection {
+        private final Connection connection;
+        private final Statement statement;
+
+        static ProbeConnection open(Connection connection) throws SQLException {
+            try {
+                return new ProbeConnection(connection, connection.createStatement());
+            } catch (SQLException e) {
+                close(connection);
+                throw e;
+            }
+        }
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            //ignored
+        }
+    }
+}
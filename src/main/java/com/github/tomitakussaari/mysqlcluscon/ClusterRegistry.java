@@ -0,0 +1,41 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.URLHelpers.URLInfo;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Process wide registry of clusters, so that all driver instances and urls pointing to same servers
+ * share blacklist, latency statistics and health information.
+ */
+class ClusterRegistry {
+
+    private static final ClusterRegistry shared = new ClusterRegistry();
+
+    private final Map<String, ClusterState> clusters = new ConcurrentHashMap<>();
+    final ServerBlackList serverBlackList = new ServerBlackList();
+
+    static ClusterRegistry shared() {
+        return shared;
+    }
+
+    ClusterState cluster(String clusterKey) {
+        final ClusterState cluster = clusters.get(clusterKey);
+        return cluster != null ? cluster : clusters.computeIfAbsent(clusterKey, key -> new ClusterState(serverBlackList));
+    }
+
+    /**
+     * @return key that is same for all urls of same type pointing to same servers, regardless of their order,
+     * case of host names or other url parameters
+     */
+    static String clusterKey(URLInfo urlInfo) {
+        return urlInfo.connectionType + urlInfo.servers.stream()
+                .map(server -> server.toLowerCase(Locale.ROOT))
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(",", "://", ""));
+    }
+}
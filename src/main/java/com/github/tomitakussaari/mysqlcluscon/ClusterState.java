@@ -0,0 +1,94 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.URLHelpers.URLInfo;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * What is known about servers of one cluster. Shared by all urls and driver instances pointing to same servers.
+ */
+@RequiredArgsConstructor
+class ClusterState {
+
+    /**
+     * Shared by all clusters, as same server can be part of many clusters
+     */
+    final ServerBlackList serverBlackList;
+    final LatencyStats connectLatencies = new LatencyStats();
+    final ServerLatencies serverLatencies = new ServerLatencies();
+    final ReplicationLags replicationLags = new ReplicationLags();
+    final ReplicationPositions replicationPositions = new ReplicationPositions();
+    final OpenConnections openConnections = new OpenConnections();
+    final ClusterTopology topology = new ClusterTopology();
+    /**
+     * Status of server depends on url parameters like maxSlaveLag, so each url gets its own monitor and status cache.
+     * Measurements above, like latencies, lags and executed GTID sets, do not depend on them and are shared.
+     * <p>
+     * Probe connections of monitor are opened with user and password of caller that started it, so callers with
+     * other credentials get monitors of their own.
+     */
+    private final Map<URLInfo, Map<List<String>, ClusterHealthMonitor>> healthMonitors = new ConcurrentHashMap<>();
+    private final Map<URLInfo, ServerStatusCache> serverStatusCaches = new ConcurrentHashMap<>();
+    private final Map<String, Long> monitoredRecoveryTimes = new ConcurrentHashMap<>();
+
+    ClusterHealthMonitor healthMonitor(URLInfo urlInfo, Properties info, Function<URLInfo, ClusterHealthMonitor> monitorStarter) {
+        Map<List<String>, ClusterHealthMonitor> monitors = healthMonitors.get(urlInfo);
+        if(monitors == null) {
+            monitors = healthMonitors.computeIfAbsent(urlInfo, key -> new ConcurrentHashMap<>());
+        }
+        final List<String> credentials = credentials(info);
+        final ClusterHealthMonitor monitor = monitors.get(credentials);
+        return monitor != null ? monitor : monitors.computeIfAbsent(credentials, key -> monitorStarter.apply(urlInfo));
+    }
+
+    /**
+     * @return any monitor of url, as statuses do not depend on credentials used to check them
+     */
+    ClusterHealthMonitor existingHealthMonitor(URLInfo urlInfo) {
+        final Map<List<String>, ClusterHealthMonitor> monitors = healthMonitors.get(urlInfo);
+        return monitors != null ? monitors.values().stream().findFirst().orElse(null) : null;
+    }
+
+    /**
+     * Stops all monitors of url. Monitor is started again when url is used next time.
+     */
+    void stopHealthMonitors(URLInfo urlInfo) {
+        Optional.ofNullable(healthMonitors.get(urlInfo)).ifPresent(monitors -> monitors.forEach((credentials, monitor) -> {
+            if(monitors.remove(credentials, monitor)) {
+                monitor.stop();
+            }
+        }));
+    }
+
+    ServerStatusCache serverStatusCache(URLInfo urlInfo) {
+        final ServerStatusCache cache = serverStatusCaches.get(urlInfo);
+        return cache != null ? cache : serverStatusCaches.computeIfAbsent(urlInfo, key -> new ServerStatusCache());
+    }
+
+    /**
+     * Called by health monitor, when server that was dead is up again
+     */
+    void recovered(String server, long recoveredAt) {
+        monitoredRecoveryTimes.put(server, recoveredAt);
+    }
+
+    /**
+     * @return latest time when server came back from blacklist or was seen to be up again by health monitor,
+     * zero if it has never been down
+     */
+    long recoveredAt(String server) {
+        return Math.max(serverBlackList.blackListedUntil(server), monitoredRecoveryTimes.getOrDefault(server, 0L));
+    }
+
+    private static List<String> credentials(Properties info) {
+        final Properties credentials = info != null ? info : new Properties();
+        return Arrays.asList(credentials.getProperty("user"), credentials.getProperty("password"));
+    }
+}
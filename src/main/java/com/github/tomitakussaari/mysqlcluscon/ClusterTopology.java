@@ -0,0 +1,87 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.ClusterHealthMonitor.ProbeConnectionOpener;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Servers of cluster found by topology discovery. Discovered servers are used in addition to servers
+ * of jdbc url, which are always kept as candidates.
+ * <p>
+ * When none of the sources can tell members of cluster, previously discovered servers are kept,
+ * as it is more likely that sources are unreachable than that all discovered servers are gone.
+ */
+class ClusterTopology {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterTopology.class.getName());
+
+    private volatile List<String> discoveredServers = Collections.emptyList();
+    private ScheduledFuture<?> scheduledDiscovery;
+
+    /**
+     * @return given servers itself, when nothing new has been discovered
+     */
+    List<String> servers(List<String> configuredServers) {
+        final List<String> discovered = discoveredServers;
+        if(configuredServers.containsAll(discovered)) {
+            return configuredServers;
+        }
+        final Set<String> servers = new LinkedHashSet<>(configuredServers);
+        servers.addAll(discovered);
+        return new ArrayList<>(servers);
+    }
+
+    List<String> discoveredServers() {
+        return discoveredServers;
+    }
+
+    synchronized ClusterTopology start(ScheduledExecutorService scheduler, long discoveryIntervalInMs, List<String> sources,
+                                       TopologyDiscovery discovery, ProbeConnectionOpener connectionOpener) {
+        if(scheduledDiscovery == null) {
+            LOGGER.info(() -> "Starting topology discovery from " + sources + " with interval " + discoveryIntervalInMs + "ms");
+            scheduledDiscovery = scheduler.scheduleWithFixedDelay(() -> refresh(sources, discovery, connectionOpener),
+                    0, discoveryIntervalInMs, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    synchronized void stop() {
+        if(scheduledDiscovery != null) {
+            scheduledDiscovery.cancel(false);
+            scheduledDiscovery = null;
+        }
+    }
+
+    /**
+     * Asks sources in order, until one of them knows members of cluster
+     */
+    void refresh(List<String> sources, TopologyDiscovery discovery, ProbeConnectionOpener connectionOpener) {
+        for(String source : sources) {
+            try (Connection conn = connectionOpener.open(source)) {
+                final List<String> servers = discovery.discoverServers(conn, 1).stream()
+                        .map(URLHelpers::withDefaultPort)
+                        .distinct()
+                        .collect(Collectors.toList());
+                if(!servers.isEmpty()) {
+                    if(!servers.equals(discoveredServers)) {
+                        LOGGER.info(() -> "Discovered servers " + servers + " from " + source);
+                    }
+                    discoveredServers = Collections.unmodifiableList(servers);
+                    return;
+                }
+            } catch (Exception e) {
+                LOGGER.fine(() -> "Unable to discover servers from " + source + " " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Opens and checks connections to several servers at the same time.
+ * Whenever one of the running attempts is consumed, next server is started in its place.
+ * If hedging is enabled, another server is also started whenever none of the running attempts completes within hedge delay.
+ */
+class ConcurrentServerProbe implements ServerProbe {
+
+    private static final Logger LOGGER = Logger.getLogger(ConcurrentServerProbe.class.getName());
+    private static final long noHedging = -1;
+
+    private final Executor executor;
+    private final Iterator<String> servers;
+    private final Function<String, Optional<ConnectionInfo>> connector;
+    private final int maxConcurrentAttempts;
+    private final long hedgeDelayInMs;
+    private final BlockingQueue<CompletableFuture<Attempt>> completedAttempts = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<Attempt>> unconsumedAttempts = new HashSet<>();
+
+    private ConcurrentServerProbe(Executor executor, List<String> servers, int initialAttempts, int maxConcurrentAttempts,
+                                  long hedgeDelayInMs, Function<String, Optional<ConnectionInfo>> connector) {
+        this.executor = executor;
+        this.servers = servers.iterator();
+        this.connector = connector;
+        this.maxConcurrentAttempts = maxConcurrentAttempts;
+        this.hedgeDelayInMs = hedgeDelayInMs;
+        while(unconsumedAttempts.size() < initialAttempts && this.servers.hasNext()) {
+            startNextAttempt();
+        }
+    }
+
+    /**
+     * Starts <code>parallelism</code> attempts right away.
+     */
+    static ConcurrentServerProbe parallel(Executor executor, List<String> servers, int parallelism,
+                                          Function<String, Optional<ConnectionInfo>> connector) {
+        return new ConcurrentServerProbe(executor, servers, parallelism, parallelism, noHedging, connector);
+    }
+
+    /**
+     * Starts with one attempt, and adds another one each time <code>hedgeDelayInMs</code> passes without any attempt completing,
+     * until <code>maxConcurrentAttempts</code> are running.
+     */
+    static ConcurrentServerProbe hedged(Executor executor, List<String> servers, int maxConcurrentAttempts, long hedgeDelayInMs,
+                                        Function<String, Optional<ConnectionInfo>> connector) {
+        return new ConcurrentServerProbe(executor, servers, 1, maxConcurrentAttempts, hedgeDelayInMs, connector);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !unconsumedAttempts.isEmpty() || servers.hasNext();
+    }
+
+    @Override
+    public Attempt next() throws SQLException {
+        final CompletableFuture<Attempt> attempt = takeCompleted();
+        unconsumedAttempts.remove(attempt);
+        if(servers.hasNext()) {
+            startNextAttempt();
+        }
+        return attempt.join();
+    }
+
+    @Override
+    public void close() {
+        unconsumedAttempts.forEach(attempt -> attempt.thenAccept(result -> result.getConnection().ifPresent(ConnectionInfo::close)));
+        unconsumedAttempts.clear();
+    }
+
+    private CompletableFuture<Attempt> takeCompleted() throws SQLException {
+        try {
+            while(canHedge()) {
+                final CompletableFuture<Attempt> completed = completedAttempts.poll(hedgeDelayInMs, TimeUnit.MILLISECONDS);
+                if(completed != null) {
+                    return completed;
+                }
+                LOGGER.fine(() -> "No connection attempt completed in " + hedgeDelayInMs + "ms, starting another one");
+                startNextAttempt();
+            }
+            return completedAttempts.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for connection attempts to complete", e);
+        }
+    }
+
+    private boolean canHedge() {
+        return hedgeDelayInMs != noHedging && servers.hasNext() && unconsumedAttempts.size() < maxConcurrentAttempts;
+    }
+
+    private void startNextAttempt() {
+        final String server = servers.next();
+        final CompletableFuture<Attempt> attempt = CompletableFuture.supplyAsync(() -> new Attempt(server, connector.apply(server)), executor);
+        unconsumedAttempts.add(attempt);
+        attempt.whenComplete((result, error) -> completedAttempts.add(attempt));
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.tomitakussaari.mysqlcluscon;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 @FunctionalInterface
 public interface ConnectionChecker {
@@ -10,4 +13,50 @@ public interface ConnectionChecker {
     }
 
     ConnectionStatus connectionStatus(final Connection conn, final int timeoutInSeconds);
+
+    /**
+     * Checkers that know more than just status of server, like replication lag, override this.
+     */
+    default CheckResult check(final Connection conn, final int timeoutInSeconds) {
+        return CheckResult.of(connectionStatus(conn, timeoutInSeconds));
+    }
+
+    /**
+     * Checks status using already created statement, so that statement can be reused between checks
+     * of long living connection. Checkers that can do their check with given statement override this.
+     */
+    default CheckResult check(final Statement statement, final int timeoutInSeconds) {
+        try {
+            return check(statement.getConnection(), timeoutInSeconds);
+        } catch (SQLException e) {
+            return CheckResult.of(ConnectionStatus.DEAD);
+        }
+    }
+
+    /**
+     * Runs status query so that it fails when server has not answered within timeout. Query timeout alone is not enough,
+     * as driver cancels query by sending KILL QUERY over another connection, which can not reach server that does not
+     * answer at all, and reading answer would then block until socketTimeout. Network timeout of connection is lowered
+     * for duration of query, and restored afterwards.
+     */
+    static <T> T withNetworkTimeout(final Connection conn, final int timeoutInSeconds, final StatusQuery<T> query) throws SQLException {
+        final int timeoutInMs = (int) TimeUnit.SECONDS.toMillis(timeoutInSeconds);
+        final int previousTimeoutInMs = conn.getNetworkTimeout();
+        final boolean lowered = timeoutInMs > 0 && (previousTimeoutInMs == 0 || previousTimeoutInMs > timeoutInMs);
+        if(lowered) {
+            conn.setNetworkTimeout(Runnable::run, timeoutInMs);
+        }
+        try {
+            return query.run();
+        } finally {
+            if(lowered) {
+                conn.setNetworkTimeout(Runnable::run, previousTimeoutInMs);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface StatusQuery<T> {
+        T run() throws SQLException;
+    }
 }
@@ -9,11 +9,17 @@ import java.sql.SQLException;
 
 @RequiredArgsConstructor
 class ConnectionInfo implements AutoCloseable {
+    @Getter
+    private final String server;
     @Getter
     private final Connection connection;
     private final ConnectionChecker checker;
     @Getter(lazy = true)
-    private final ConnectionStatus status = calculateStatus();
+    private final CheckResult checkResult = checker.check(connection, 1);
+
+    ConnectionStatus getStatus() {
+        return getCheckResult().getStatus();
+    }
 
     @Override
     public void close() {
@@ -23,8 +29,4 @@ class ConnectionInfo implements AutoCloseable {
             //ignored
         }
     }
-
-    private ConnectionStatus calculateStatus() {
-        return checker.connectionStatus(connection);
-    }
 }
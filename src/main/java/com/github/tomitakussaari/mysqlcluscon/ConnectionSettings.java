@@ -0,0 +1,181 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.URLHelpers.URLInfo;
+import lombok.RequiredArgsConstructor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static com.github.tomitakussaari.mysqlcluscon.Params.*;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Everything driver needs to know about jdbc url, parsed once per url.
+ */
+@RequiredArgsConstructor
+class ConnectionSettings {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionSettings.class.getName());
+
+    final URLInfo urlInfo;
+    final String clusterKey;
+    final ConnectionChecker connectionChecker;
+    final ConnectionStatus wantedConnectionStatus;
+    final ProbeMode probeMode;
+    final ServerSelection serverSelection;
+    final ServerSelectionStrategy serverSelectionStrategy;
+    final int probeParallelism;
+    /**
+     * Empty when hedge delay should be based on observed connect times
+     */
+    final OptionalLong hedgeDelayInMs;
+    /**
+     * Empty when servers should not be monitored in background
+     */
+    final OptionalLong healthCheckIntervalInMs;
+    final long validationCacheInMs;
+    final long blackListInitialInMs;
+    final long blackListMaxInMs;
+    /**
+     * Empty when servers should not be discovered from cluster
+     */
+    final OptionalLong discoveryIntervalInMs;
+    /**
+     * Servers that are asked for members of cluster
+     */
+    final List<String> discoverySources;
+    /**
+     * How long to wait for server to execute required GTID set, zero when server must already have executed it
+     */
+    final long gtidWaitInMs;
+    /**
+     * Present only for replication urls
+     */
+    final Optional<Replication> replication;
+    /**
+     * Created when server is checked for the first time, as checker is needed on every connect attempt and status check
+     */
+    private final Map<String, ConnectionChecker> timedConnectionCheckers = new ConcurrentHashMap<>();
+
+    /**
+     * Master and replicas are connected to like they were separate read clusters, so that replicas share state
+     * with read cluster urls pointing to same servers.
+     */
+    @RequiredArgsConstructor
+    static class Replication {
+        final ConnectionSettings master;
+        final ConnectionSettings replicas;
+    }
+
+    /**
+     * @return checker of url for given server, that also records latency of status queries to driver metrics
+     */
+    ConnectionChecker timedConnectionChecker(String server) {
+        final ConnectionChecker checker = timedConnectionCheckers.get(server);
+        return checker != null ? checker
+                : timedConnectionCheckers.computeIfAbsent(server, key -> DriverMetrics.shared().timed(connectionChecker, key));
+    }
+
+    static ConnectionSettings parse(String jdbcUrl) throws SQLException {
+        return of(withDefaultConnectTimeout(URLHelpers.parse(jdbcUrl), jdbcUrl));
+    }
+
+    private static ConnectionSettings of(URLInfo urlInfo) throws SQLException {
+        final Map<String, List<String>> queryParameters = urlInfo.queryParameters;
+        final ConnectionChecker connectionChecker = getConnectionChecker(urlInfo);
+        final ServerSelection serverSelection = getServerSelection(queryParameters);
+        final long blackListInitialInMs = URLHelpers.getLongParameter(queryParameters, BLACKLIST_INITIAL_MS_PARAM, ServerBlackList.defaultInitialBlackListTimeInMs);
+        return new ConnectionSettings(
+                urlInfo,
+                ClusterRegistry.clusterKey(urlInfo),
+                connectionChecker,
+                getWantedConnectionStatus(queryParameters),
+                getProbeMode(queryParameters),
+                serverSelection,
+                withSlowStart(serverSelection.getStrategy(), URLHelpers.getLongParameter(queryParameters, SLOW_START_MS_PARAM, 0)),
+                Math.max(1, URLHelpers.getIntParameter(queryParameters, PROBE_PARALLELISM_PARAM, DEFAULT_PROBE_PARALLELISM)),
+                getOptionalLong(queryParameters, HEDGE_AFTER_MS_PARAM),
+                getOptionalLong(queryParameters, HEALTH_CHECK_INTERVAL_MS_PARAM),
+                URLHelpers.getLongParameter(queryParameters, VALIDATION_CACHE_MS_PARAM, 0),
+                blackListInitialInMs,
+                Math.max(blackListInitialInMs, URLHelpers.getLongParameter(queryParameters, BLACKLIST_MAX_MS_PARAM, ServerBlackList.defaultMaxBlackListTimeInMs)),
+                getOptionalLong(queryParameters, DISCOVERY_INTERVAL_MS_PARAM),
+                getDiscoverySources(queryParameters, urlInfo),
+                URLHelpers.getLongParameter(queryParameters, GTID_WAIT_MS_PARAM, 0),
+                getReplication(urlInfo)
+        );
+    }
+
+    /**
+     * Master is never discovered, and by default replicas are discovered from master
+     */
+    private static Optional<Replication> getReplication(URLInfo urlInfo) throws SQLException {
+        if(!urlInfo.connectionType.isReplication()) {
+            return Optional.empty();
+        }
+        final MysclusconDriver.ConnectionType memberType = urlInfo.connectionType.memberType();
+        final String master = urlInfo.servers.get(0);
+        return Optional.of(new Replication(
+                of(urlInfo.withServers(singletonList(master), memberType).withoutQueryParameter(DISCOVERY_INTERVAL_MS_PARAM)),
+                of(urlInfo.withServers(urlInfo.servers.subList(1, urlInfo.servers.size()), memberType).withDefaultQueryParameter(DISCOVER_FROM_PARAM, master))
+        ));
+    }
+
+    /**
+     * Checkers report invalid values of their url parameters with IllegalArgumentException
+     */
+    private static ConnectionChecker getConnectionChecker(URLInfo urlInfo) throws SQLException {
+        try {
+            return urlInfo.connectionType.getConnectionCheckerSupplier().get(urlInfo);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private static URLInfo withDefaultConnectTimeout(URLInfo urlInfo, String jdbcUrl) {
+        if(!urlInfo.queryParameters.containsKey(MYSQL_CONNECT_TIMEOUT_PARAM)) {
+            LOGGER.info(() -> "No connect timeout specified for URL: "+jdbcUrl+ " using default: "+DEFAULT_CONNECT_TIMEOUT_IN_MS);
+        }
+        return urlInfo.withDefaultQueryParameter(MYSQL_CONNECT_TIMEOUT_PARAM, DEFAULT_CONNECT_TIMEOUT_IN_MS.toString());
+    }
+
+    private static ConnectionStatus getWantedConnectionStatus(Map<String, List<String>> queryParameters) {
+        return ConnectionStatus.from(
+                URLHelpers.getParameter(queryParameters, "connectionStatus", ConnectionStatus.STOPPED.toString())
+        ).orElse(ConnectionStatus.STOPPED);
+    }
+
+    private static ProbeMode getProbeMode(Map<String, List<String>> queryParameters) {
+        return ProbeMode.from(
+                URLHelpers.getParameter(queryParameters, PROBE_MODE_PARAM, ProbeMode.SEQUENTIAL.toString())
+        ).orElse(ProbeMode.SEQUENTIAL);
+    }
+
+    private static ServerSelection getServerSelection(Map<String, List<String>> queryParameters) {
+        return ServerSelection.from(
+                URLHelpers.getParameter(queryParameters, SERVER_SELECTION_PARAM, ServerSelection.RANDOM.toString())
+        ).orElse(ServerSelection.RANDOM);
+    }
+
+    private static List<String> getDiscoverySources(Map<String, List<String>> queryParameters, URLInfo urlInfo) {
+        final String sources = URLHelpers.getParameter(queryParameters, DISCOVER_FROM_PARAM, null);
+        return sources != null ? unmodifiableList(URLHelpers.parseServers(sources)) : urlInfo.servers;
+    }
+
+    private static ServerSelectionStrategy withSlowStart(ServerSelectionStrategy strategy, long slowStartInMs) {
+        return slowStartInMs > 0 ? new SlowStartServerSelection(strategy, slowStartInMs) : strategy;
+    }
+
+    private static OptionalLong getOptionalLong(Map<String, List<String>> queryParameters, String parameter) throws SQLException {
+        if(queryParameters.containsKey(parameter)) {
+            return OptionalLong.of(URLHelpers.getLongParameter(queryParameters, parameter, 0));
+        }
+        return OptionalLong.empty();
+    }
+}
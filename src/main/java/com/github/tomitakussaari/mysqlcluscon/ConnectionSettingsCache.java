@@ -0,0 +1,59 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.RequiredArgsConstructor;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Remembers parsed settings of jdbc urls. Applications use only handful of different urls,
+ * so when cache is full, some entry is simply evicted to make room for new one. Evicted settings are given to listener,
+ * so that background work started for them can be stopped.
+ */
+@RequiredArgsConstructor
+class ConnectionSettingsCache {
+
+    private static final int defaultMaxSize = 64;
+
+    private final Map<String, ConnectionSettings> settingsByUrl = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final Consumer<ConnectionSettings> evictionListener;
+
+    ConnectionSettingsCache() {
+        this(defaultMaxSize);
+    }
+
+    ConnectionSettingsCache(int maxSize) {
+        this(maxSize, evicted -> {});
+    }
+
+    ConnectionSettingsCache(Consumer<ConnectionSettings> evictionListener) {
+        this(defaultMaxSize, evictionListener);
+    }
+
+    ConnectionSettings get(String jdbcUrl) throws SQLException {
+        ConnectionSettings settings = settingsByUrl.get(jdbcUrl);
+        if(settings == null) {
+            settings = ConnectionSettings.parse(jdbcUrl);
+            evictIfFull();
+            settingsByUrl.put(jdbcUrl, settings);
+        }
+        return settings;
+    }
+
+    int size() {
+        return settingsByUrl.size();
+    }
+
+    private void evictIfFull() {
+        final Iterator<ConnectionSettings> settings = settingsByUrl.values().iterator();
+        while(settingsByUrl.size() >= maxSize && settings.hasNext()) {
+            final ConnectionSettings evicted = settings.next();
+            settings.remove();
+            evictionListener.accept(evicted);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.logging.Logger;
+
+/**
+ * Java Flight Recorder events of driver. This class itself records nothing, and is used when JVM does not have JFR.
+ * Events are recorded by {@link JfrDriverEvents}, which is loaded only when JFR classes are available,
+ * so that driver still works on Java 8 builds without JFR.
+ * <p>
+ * Begin methods return started event, or null when event is not enabled in any recording, in which case nothing is allocated.
+ * Event is committed by passing it to corresponding end method.
+ */
+class DriverEvents {
+
+    private static final Logger LOGGER = Logger.getLogger(DriverEvents.class.getName());
+    private static final DriverEvents instance = load();
+
+    static DriverEvents get() {
+        return instance;
+    }
+
+    Object beginConnect() {
+        return null;
+    }
+
+    void connected(Object event, String server, boolean succeeded) {
+    }
+
+    Object beginStatusCheck() {
+        return null;
+    }
+
+    /**
+     * @param replicationLagInSeconds negative when unknown
+     */
+    void statusChecked(Object event, String checker, String server, ConnectionStatus status, long replicationLagInSeconds) {
+    }
+
+    Object beginServerSelection() {
+        return null;
+    }
+
+    /**
+     * @param server null when none of candidates was good enough
+     */
+    void serverSelected(Object event, int candidates, String server, ConnectionStatus status) {
+    }
+
+    void blackListed(String server, long blackListTimeInMs, int failures) {
+    }
+
+    Object beginValidation() {
+        return null;
+    }
+
+    void validated(Object event, String server, ConnectionStatus status, boolean valid) {
+    }
+
+    private static DriverEvents load() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (DriverEvents) Class.forName(DriverEvents.class.getPackage().getName() + ".JfrDriverEvents").newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOGGER.fine(() -> "Java Flight Recorder is not available, driver events are not recorded " + e);
+            return new DriverEvents();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Executors for blocking work of driver: connect attempts and status checks. On Java 21 and later, each task is run in its own
+ * virtual thread, so that blocking JDBC calls to many servers do not take platform threads. Virtual threads are looked up
+ * reflectively, so that driver still works on Java 8, where bounded pool of platform threads is used instead.
+ * Each executor has pool of its own, so that status checks do not compete with connect attempts for threads.
+ * <p>
+ * Virtual threads can be turned off with system property myscluscon.virtualThreads=false.
+ */
+class DriverExecutors {
+
+    private static final Logger LOGGER = Logger.getLogger(DriverExecutors.class.getName());
+    static final String virtualThreadsProperty = "myscluscon.virtualThreads";
+    static final int maxPlatformThreads = 64;
+
+    static ExecutorService newExecutor(String name) {
+        return newExecutor(name, Boolean.parseBoolean(System.getProperty(virtualThreadsProperty, "true")));
+    }
+
+    static ExecutorService newExecutor(String name, boolean virtualThreadsIfAvailable) {
+        final Optional<ExecutorService> virtualThreadExecutor = virtualThreadsIfAvailable ? virtualThreadPerTaskExecutor(name) : Optional.empty();
+        return virtualThreadExecutor.orElseGet(() -> platformThreadPool(name, maxPlatformThreads));
+    }
+
+    /**
+     * Tasks are never queued, so that they do not wait behind connect attempts that block until their timeout.
+     * New thread is started when all threads are busy, up to given amount, and idle threads are stopped after a minute.
+     * When all threads are busy, task is run in thread that submitted it, which slows down callers instead of starting more threads.
+     */
+    static ExecutorService platformThreadPool(String name, int maxThreads) {
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                MysclusconDriver.daemonThreadFactory(name), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static Optional<ExecutorService> virtualThreadPerTaskExecutor(String name) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = builderClass.getMethod("name", String.class).invoke(Thread.class.getMethod("ofVirtual").invoke(null), name);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return Optional.of((ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory));
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOGGER.fine(() -> "Virtual threads are not available, using platform threads for " + name + " " + e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Process wide metrics of driver. Recording does not lock, and allocates only when server or checker is seen
+ * for the first time, so it can be done on every connect.
+ */
+class DriverMetrics implements MysclusconMetricsMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(DriverMetrics.class.getName());
+    static final String objectName = "com.github.tomitakussaari.mysqlcluscon:type=Metrics";
+    private static final DriverMetrics shared = registered(new DriverMetrics());
+
+    private final Map<String, LongAdder> connectAttempts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> connectFailures = new ConcurrentHashMap<>();
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> statusQueryLatencies = new ConcurrentHashMap<>();
+    private final LongAdder validResults = new LongAdder();
+    private final LongAdder invalidResults = new LongAdder();
+    private final LongAdder blackListInsertions = new LongAdder();
+    private final LongAdder blackListRemovals = new LongAdder();
+    private final AtomicLongArray chosenStatuses = new AtomicLongArray(ConnectionStatus.values().length);
+
+    static DriverMetrics shared() {
+        return shared;
+    }
+
+    void connectAttempted(String server, boolean succeeded, long latencyInNanos) {
+        counter(connectAttempts, server).increment();
+        if(!succeeded) {
+            counter(connectFailures, server).increment();
+        }
+        connectLatency.record(latencyInNanos);
+    }
+
+    /**
+     * @return checker of given server, that records latency of its status queries. Callers keep the checker,
+     * instead of asking new one for every check.
+     */
+    ConnectionChecker timed(ConnectionChecker checker, String server) {
+        final String name = checker.getClass().getSimpleName();
+        final LatencyHistogram latencies = statusQueryLatencies.get(name);
+        return new TimedConnectionChecker(name, server, checker,
+                latencies != null ? latencies : statusQueryLatencies.computeIfAbsent(name, n -> new LatencyHistogram()));
+    }
+
+    void validated(boolean valid) {
+        (valid ? validResults : invalidResults).increment();
+    }
+
+    void blackListed() {
+        blackListInsertions.increment();
+    }
+
+    void blackListExpired() {
+        blackListRemovals.increment();
+    }
+
+    void chosen(ConnectionStatus status) {
+        chosenStatuses.incrementAndGet(status.ordinal());
+    }
+
+    MetricsSnapshot snapshot() {
+        return new MetricsSnapshot(getConnectAttempts(), getConnectFailures(), getConnectLatency(), getStatusQueryLatencies(),
+                getValidResults(), getInvalidResults(), getBlackListInsertions(), getBlackListRemovals(), getChosenStatuses());
+    }
+
+    @Override
+    public Map<String, Long> getConnectAttempts() {
+        return copyOf(connectAttempts, LongAdder::sum);
+    }
+
+    @Override
+    public Map<String, Long> getConnectFailures() {
+        return copyOf(connectFailures, LongAdder::sum);
+    }
+
+    @Override
+    public MetricsSnapshot.Latency getConnectLatency() {
+        return connectLatency.snapshot();
+    }
+
+    @Override
+    public Map<String, MetricsSnapshot.Latency> getStatusQueryLatencies() {
+        return copyOf(statusQueryLatencies, LatencyHistogram::snapshot);
+    }
+
+    @Override
+    public long getValidResults() {
+        return validResults.sum();
+    }
+
+    @Override
+    public long getInvalidResults() {
+        return invalidResults.sum();
+    }
+
+    @Override
+    public long getBlackListInsertions() {
+        return blackListInsertions.sum();
+    }
+
+    @Override
+    public long getBlackListRemovals() {
+        return blackListRemovals.sum();
+    }
+
+    @Override
+    public Map<String, Long> getChosenStatuses() {
+        final Map<String, Long> statuses = new LinkedHashMap<>();
+        for(ConnectionStatus status : ConnectionStatus.values()) {
+            statuses.put(status.name(), chosenStatuses.get(status.ordinal()));
+        }
+        return unmodifiableMap(statuses);
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String server) {
+        final LongAdder counter = counters.get(server);
+        return counter != null ? counter : counters.computeIfAbsent(server, s -> new LongAdder());
+    }
+
+    private static <T, R> Map<String, R> copyOf(Map<String, T> metrics, Function<T, R> value) {
+        final Map<String, R> copy = new LinkedHashMap<>();
+        metrics.forEach((key, metric) -> copy.put(key, value.apply(metric)));
+        return unmodifiableMap(copy);
+    }
+
+    /**
+     * Driver can be loaded by many class loaders, in which case only first one is visible via JMX
+     */
+    private static DriverMetrics registered(DriverMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(objectName));
+        } catch (JMException | RuntimeException e) {
+            LOGGER.fine(() -> "Unable to register metrics MXBean " + objectName + " " + e.getMessage());
+        }
+        return metrics;
+    }
+}
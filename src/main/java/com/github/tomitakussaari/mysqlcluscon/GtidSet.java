@@ -0,0 +1,124 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.EqualsAndHashCode;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Set of transactions, either MySQL GTID set like {@code 3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5:7} or
+ * MariaDB GTID position like {@code 0-1-100,1-2-50}.
+ * <p>
+ * MariaDB position of each domain is handled as if it was interval from first to given sequence number,
+ * so that both can be compared the same way.
+ */
+@EqualsAndHashCode(of = "gtidSet")
+public final class GtidSet {
+
+    private final String gtidSet;
+    private final boolean mariaDb;
+    private final Map<String, List<long[]>> intervals;
+
+    private GtidSet(String gtidSet, boolean mariaDb, Map<String, List<long[]>> intervals) {
+        this.gtidSet = gtidSet;
+        this.mariaDb = mariaDb;
+        this.intervals = intervals;
+    }
+
+    public static GtidSet parse(String gtidSet) throws SQLException {
+        final String trimmed = gtidSet.replaceAll("\\s", "");
+        final Map<String, List<long[]>> intervals = new HashMap<>();
+        final boolean mariaDb = !trimmed.contains(":");
+        try {
+            for(String gtid : trimmed.split(",")) {
+                if(gtid.isEmpty()) {
+                    continue;
+                }
+                if(mariaDb) {
+                    final String[] parts = gtid.split("-");
+                    if(parts.length != 3) {
+                        throw new SQLException("Invalid MariaDB GTID: " + gtid);
+                    }
+                    addInterval(intervals, parts[0], 1, Long.parseLong(parts[2]));
+                } else {
+                    final String[] parts = gtid.split(":");
+                    for(int i = 1; i < parts.length; i++) {
+                        final String[] range = parts[i].split("-");
+                        addInterval(intervals, parts[0].toLowerCase(Locale.ROOT), Long.parseLong(range[0]), Long.parseLong(range[range.length - 1]));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid GTID set: " + gtidSet, e);
+        }
+        intervals.replaceAll((source, sourceIntervals) -> merged(sourceIntervals));
+        return new GtidSet(trimmed, mariaDb, intervals);
+    }
+
+    public boolean isEmpty() {
+        return intervals.isEmpty();
+    }
+
+    /**
+     * @return true when every transaction of given set is also in this set
+     */
+    public boolean contains(GtidSet other) {
+        for(Map.Entry<String, List<long[]>> entry : other.intervals.entrySet()) {
+            final List<long[]> ownIntervals = intervals.get(entry.getKey());
+            for(long[] interval : entry.getValue()) {
+                if(ownIntervals == null || ownIntervals.stream().noneMatch(own -> own[0] <= interval[0] && interval[1] <= own[1])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits on given connection until its server has executed this set, using MASTER_GTID_WAIT with MariaDB
+     * and WAIT_FOR_EXECUTED_GTID_SET with MySQL.
+     *
+     * @return false if server did not execute this set in time
+     */
+    boolean awaitExecuted(Connection conn, long timeoutInMs) throws SQLException {
+        final String query = mariaDb ? "SELECT MASTER_GTID_WAIT(?, ?)" : "SELECT WAIT_FOR_EXECUTED_GTID_SET(?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setString(1, gtidSet);
+            stmt.setDouble(2, timeoutInMs / 1000.0);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 0 && !rs.wasNull();
+            }
+        }
+    }
+
+    private static void addInterval(Map<String, List<long[]>> intervals, String source, long start, long end) {
+        intervals.computeIfAbsent(source, s -> new ArrayList<>()).add(new long[] {start, end});
+    }
+
+    private static List<long[]> merged(List<long[]> intervals) {
+        intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+        final List<long[]> merged = new ArrayList<>();
+        for(long[] interval : intervals) {
+            final long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if(last != null && interval[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], interval[1]);
+            } else {
+                merged.add(interval.clone());
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return gtidSet;
+    }
+}
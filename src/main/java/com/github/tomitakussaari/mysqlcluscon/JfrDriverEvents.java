@@ -0,0 +1,177 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Records driver events to Java Flight Recorder. Only loaded via reflection by {@link DriverEvents},
+ * as referring to this class fails on JVMs without JFR.
+ */
+class JfrDriverEvents extends DriverEvents {
+
+    private static final String category = "myscluscon";
+
+    private final EventType connectType = EventType.getEventType(ConnectEvent.class);
+    private final EventType statusCheckType = EventType.getEventType(StatusCheckEvent.class);
+    private final EventType serverSelectionType = EventType.getEventType(ServerSelectionEvent.class);
+    private final EventType blackListType = EventType.getEventType(BlackListEvent.class);
+    private final EventType validationType = EventType.getEventType(ValidationEvent.class);
+
+    @Name("myscluscon.Connect")
+    @Label("Connect")
+    @Description("Opening connection to server, including TCP connect and authentication")
+    @Category(category)
+    @StackTrace(false)
+    static class ConnectEvent extends Event {
+        @Label("Server")
+        String server;
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("myscluscon.StatusCheck")
+    @Label("Status Check")
+    @Description("Status query of server, like SHOW SLAVE STATUS")
+    @Category(category)
+    @StackTrace(false)
+    static class StatusCheckEvent extends Event {
+        @Label("Checker")
+        String checker;
+        @Label("Server")
+        String server;
+        @Label("Status")
+        String status;
+        @Label("Replication Lag")
+        @Description("Seconds behind master, negative when unknown")
+        long replicationLagInSeconds;
+    }
+
+    @Name("myscluscon.ServerSelection")
+    @Label("Server Selection")
+    @Description("Choosing best of servers that were connected to")
+    @Category(category)
+    @StackTrace(false)
+    static class ServerSelectionEvent extends Event {
+        @Label("Candidates")
+        int candidates;
+        @Label("Server")
+        String server;
+        @Label("Status")
+        String status;
+    }
+
+    @Name("myscluscon.BlackList")
+    @Label("Blacklist")
+    @Description("Server was put to blacklist")
+    @Category(category)
+    @StackTrace(false)
+    static class BlackListEvent extends Event {
+        @Label("Server")
+        String server;
+        @Label("Blacklist Time")
+        @Timespan(Timespan.MILLISECONDS)
+        long blackListTime;
+        @Label("Failures")
+        int failures;
+    }
+
+    @Name("myscluscon.Validation")
+    @Label("Validation")
+    @Description("isValid of connection")
+    @Category(category)
+    @StackTrace(false)
+    static class ValidationEvent extends Event {
+        @Label("Server")
+        String server;
+        @Label("Status")
+        String status;
+        @Label("Valid")
+        boolean valid;
+    }
+
+    @Override
+    Object beginConnect() {
+        return connectType.isEnabled() ? begin(new ConnectEvent()) : null;
+    }
+
+    @Override
+    void connected(Object event, String server, boolean succeeded) {
+        if(event instanceof ConnectEvent) {
+            final ConnectEvent connect = (ConnectEvent) event;
+            connect.server = server;
+            connect.succeeded = succeeded;
+            connect.commit();
+        }
+    }
+
+    @Override
+    Object beginStatusCheck() {
+        return statusCheckType.isEnabled() ? begin(new StatusCheckEvent()) : null;
+    }
+
+    @Override
+    void statusChecked(Object event, String checker, String server, ConnectionStatus status, long replicationLagInSeconds) {
+        if(event instanceof StatusCheckEvent) {
+            final StatusCheckEvent statusCheck = (StatusCheckEvent) event;
+            statusCheck.checker = checker;
+            statusCheck.server = server;
+            statusCheck.status = status.name();
+            statusCheck.replicationLagInSeconds = replicationLagInSeconds;
+            statusCheck.commit();
+        }
+    }
+
+    @Override
+    Object beginServerSelection() {
+        return serverSelectionType.isEnabled() ? begin(new ServerSelectionEvent()) : null;
+    }
+
+    @Override
+    void serverSelected(Object event, int candidates, String server, ConnectionStatus status) {
+        if(event instanceof ServerSelectionEvent) {
+            final ServerSelectionEvent selection = (ServerSelectionEvent) event;
+            selection.candidates = candidates;
+            selection.server = server;
+            selection.status = status != null ? status.name() : null;
+            selection.commit();
+        }
+    }
+
+    @Override
+    void blackListed(String server, long blackListTimeInMs, int failures) {
+        if(blackListType.isEnabled()) {
+            final BlackListEvent blackList = new BlackListEvent();
+            blackList.server = server;
+            blackList.blackListTime = blackListTimeInMs;
+            blackList.failures = failures;
+            blackList.commit();
+        }
+    }
+
+    @Override
+    Object beginValidation() {
+        return validationType.isEnabled() ? begin(new ValidationEvent()) : null;
+    }
+
+    @Override
+    void validated(Object event, String server, ConnectionStatus status, boolean valid) {
+        if(event instanceof ValidationEvent) {
+            final ValidationEvent validation = (ValidationEvent) event;
+            validation.server = server;
+            validation.status = status.name();
+            validation.valid = valid;
+            validation.commit();
+        }
+    }
+
+    private static Event begin(Event event) {
+        event.begin();
+        return event;
+    }
+}
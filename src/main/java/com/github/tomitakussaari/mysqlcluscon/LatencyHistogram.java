@@ -0,0 +1,58 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, with log-linear buckets like in HdrHistogram: each power of two is split
+ * into 8 buckets, so that percentiles are within 12.5% of recorded values, whatever their magnitude.
+ * <p>
+ * Recording does not lock or allocate, so it can be done on every connect.
+ */
+class LatencyHistogram {
+
+    private static final int subBucketBits = 3;
+    private static final int subBucketCount = 1 << subBucketBits;
+    static final int bucketCount = (64 - subBucketBits) * subBucketCount;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long latencyInNanos) {
+        final long value = Math.max(0, latencyInNanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        long previousMax = max.get();
+        while(value > previousMax && !max.compareAndSet(previousMax, value)) {
+            previousMax = max.get();
+        }
+    }
+
+    MetricsSnapshot.Latency snapshot() {
+        final long[] counts = new long[bucketCount];
+        for(int i = 0; i < bucketCount; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new MetricsSnapshot.Latency(counts, max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if(value < subBucketCount) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (magnitude - subBucketBits)) & (subBucketCount - 1);
+        return (magnitude - subBucketBits + 1) * subBucketCount + subBucket;
+    }
+
+    /**
+     * @return largest value that is counted to given bucket
+     */
+    static long highestValueOf(int bucketIndex) {
+        if(bucketIndex < subBucketCount) {
+            return bucketIndex;
+        }
+        final int magnitude = bucketIndex / subBucketCount + subBucketBits - 1;
+        final long lowest = (long) (subBucketCount + bucketIndex % subBucketCount) << (magnitude - subBucketBits);
+        return lowest + (1L << (magnitude - subBucketBits)) - 1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps latest latency samples in fixed size ring buffer, so that percentiles of recently observed latencies can be calculated.
+ */
+class LatencyStats {
+
+    private static final int defaultSampleCount = 128;
+    private static final int defaultMinimumSamplesForPercentile = 20;
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private final int minimumSamplesForPercentile;
+
+    LatencyStats() {
+        this(defaultSampleCount, defaultMinimumSamplesForPercentile);
+    }
+
+    LatencyStats(int sampleCount, int minimumSamplesForPercentile) {
+        this.samples = new AtomicLongArray(sampleCount);
+        this.minimumSamplesForPercentile = minimumSamplesForPercentile;
+    }
+
+    void record(long latencyInMs) {
+        samples.set((int) (recorded.getAndIncrement() % samples.length()), latencyInMs);
+    }
+
+    OptionalLong percentile(int percentile) {
+        final int available = (int) Math.min(recorded.get(), samples.length());
+        if(available < minimumSamplesForPercentile) {
+            return OptionalLong.empty();
+        }
+        final long[] sorted = new long[available];
+        for(int i = 0; i < available; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(percentile / 100.0 * available) - 1;
+        return OptionalLong.of(sorted[Math.max(0, index)]);
+    }
+}
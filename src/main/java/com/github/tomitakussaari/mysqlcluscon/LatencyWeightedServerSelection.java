@@ -0,0 +1,20 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.List;
+
+/**
+ * Prefers servers with low average latency, using {@link PowerOfTwoChoices}, so that fastest server is not always picked
+ * and load does not pile up on it. Servers with no latency samples yet are tried as if they were fastest,
+ * so that their latency gets known.
+ */
+class LatencyWeightedServerSelection implements ServerSelectionStrategy {
+
+    @Override
+    public List<String> order(List<String> servers, ClusterState cluster) {
+        return PowerOfTwoChoices.order(servers, server -> latency(server, cluster));
+    }
+
+    private double latency(String server, ClusterState cluster) {
+        return cluster.serverLatencies.averageInNanos(server).orElse(0);
+    }
+}
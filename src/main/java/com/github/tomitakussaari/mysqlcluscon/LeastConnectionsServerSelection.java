@@ -0,0 +1,21 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tries servers with least open connections first, so that connections of pool are spread evenly over servers,
+ * also after pool has been refilled when some server has been down.
+ * Servers with same amount of connections are tried in random order.
+ */
+class LeastConnectionsServerSelection implements ServerSelectionStrategy {
+
+    private final RandomServerSelection randomServerSelection = new RandomServerSelection();
+
+    @Override
+    public List<String> order(List<String> servers, ClusterState cluster) {
+        final List<String> ordered = randomServerSelection.order(servers, cluster);
+        ordered.sort(Comparator.comparingInt(cluster.openConnections::count));
+        return ordered;
+    }
+}
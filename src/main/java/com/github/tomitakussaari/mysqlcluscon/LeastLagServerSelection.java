@@ -0,0 +1,21 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.List;
+
+/**
+ * Prefers less lagging replicas, so that reads see as fresh data as possible. Freshest replica is not always picked,
+ * as that would move all new connections to it and make it lag: lags are compared in buckets that double in size
+ * (0-1, 2-3, 4-7, 8-15...), and servers are ordered with {@link PowerOfTwoChoices}, so that load is spread over
+ * replicas with similar lag, and mostly away from those lagging clearly more.
+ */
+class LeastLagServerSelection implements ServerSelectionStrategy {
+
+    @Override
+    public List<String> order(List<String> servers, ClusterState cluster) {
+        return PowerOfTwoChoices.order(servers, server -> lagBucket(cluster.replicationLags.lagForOrdering(server)));
+    }
+
+    static int lagBucket(long lag) {
+        return 64 - Long.numberOfLeadingZeros(lag >>> 1);
+    }
+}
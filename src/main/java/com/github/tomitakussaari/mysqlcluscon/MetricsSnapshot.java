@@ -0,0 +1,96 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Metrics of driver at one moment, since driver was loaded. Same values are available via JMX,
+ * from MXBean named com.github.tomitakussaari.mysqlcluscon:type=Metrics.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class MetricsSnapshot {
+
+    /**
+     * Connect attempts by server, including failed ones
+     */
+    private final Map<String, Long> connectAttempts;
+    private final Map<String, Long> connectFailures;
+    private final Latency connectLatency;
+    /**
+     * Latency of status queries by checker
+     */
+    private final Map<String, Latency> statusQueryLatencies;
+    /**
+     * How many times isValid of connection returned true
+     */
+    private final long validResults;
+    private final long invalidResults;
+    private final long blackListInsertions;
+    /**
+     * Counted when server is first seen to be out of blacklist
+     */
+    private final long blackListRemovals;
+    /**
+     * Statuses of servers at the time connections to them were given out, by status name
+     */
+    private final Map<String, Long> chosenStatuses;
+
+    /**
+     * @return current metrics of driver
+     */
+    public static MetricsSnapshot current() {
+        return DriverMetrics.shared().snapshot();
+    }
+
+    /**
+     * Latency histogram, percentiles are within 12.5% of actual values
+     */
+    public static final class Latency {
+
+        private final long[] bucketCounts;
+        @Getter
+        private final long count;
+        @Getter
+        private final long maxInNanos;
+
+        Latency(long[] bucketCounts, long maxInNanos) {
+            this.bucketCounts = bucketCounts;
+            this.maxInNanos = maxInNanos;
+            long count = 0;
+            for(long bucketCount : bucketCounts) {
+                count += bucketCount;
+            }
+            this.count = count;
+        }
+
+        public long getMedianInNanos() {
+            return percentileInNanos(50);
+        }
+
+        public long get95thPercentileInNanos() {
+            return percentileInNanos(95);
+        }
+
+        public long get99thPercentileInNanos() {
+            return percentileInNanos(99);
+        }
+
+        /**
+         * @return zero when nothing has been recorded
+         */
+        public long percentileInNanos(double percentile) {
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for(int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if(seen >= rank) {
+                    return Math.min(LatencyHistogram.highestValueOf(i), maxInNanos);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection to one server of cluster. Delegates everything to real connection,
+ * except isValid, which also checks that status of server is still good enough,
+ * and close, which also tells driver that connection is no longer open.
+ * <p>
+ * Creating statement fails with {@link SQLTransientConnectionException}, when status of server already known
+ * to driver is not good enough, so that pools evict connection right away instead of on their next validation.
+ * Known status is only looked up, server is not queried.
+ * <p>
+ * Use {@link #unwrap(Class)} to get access to {@link #requireAtLeast(String)}.
+ */
+public class MysclusconConnection implements Connection {
+
+    /**
+     * SQL state of connection failures, which pools treat as reason to evict connection
+     */
+    private static final String connectionFailureSqlState = "08006";
+
+    private final String server;
+    private final Connection realConnection;
+    private final ConnectionChecker connectionChecker;
+    private final ConnectionStatus wantedConnectionStatus;
+    private final ConnectionStatus connectionStatusOnCreate;
+    private final Runnable closeListener;
+    private final GtidRequirement gtidRequirement;
+    private final ServerStatusSource serverStatus;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    MysclusconConnection(Connection realConnection, ConnectionChecker connectionChecker,
+                         ConnectionStatus wantedConnectionStatus, ConnectionStatus connectionStatusOnCreate) {
+        this(realConnection, connectionChecker, wantedConnectionStatus, connectionStatusOnCreate, () -> {});
+    }
+
+    MysclusconConnection(Connection realConnection, ConnectionChecker connectionChecker,
+                         ConnectionStatus wantedConnectionStatus, ConnectionStatus connectionStatusOnCreate, Runnable closeListener) {
+        this(null, realConnection, connectionChecker, wantedConnectionStatus, connectionStatusOnCreate, closeListener, (conn, gtidSet) -> {
+            throw new SQLFeatureNotSupportedException("Server of connection does not know its replication position");
+        }, Optional::empty);
+    }
+
+    /**
+     * @param server to which real connection is connected to
+     * @param closeListener called once, when connection is closed or aborted first time
+     * @param gtidRequirement makes sure that server of connection has executed given GTID set
+     * @param serverStatus latest status of server, that is known without querying it
+     */
+    MysclusconConnection(String server, Connection realConnection, ConnectionChecker connectionChecker,
+                         ConnectionStatus wantedConnectionStatus, ConnectionStatus connectionStatusOnCreate, Runnable closeListener,
+                         GtidRequirement gtidRequirement, ServerStatusSource serverStatus) {
+        this.server = server;
+        this.realConnection = realConnection;
+        this.connectionChecker = connectionChecker;
+        this.wantedConnectionStatus = wantedConnectionStatus;
+        this.connectionStatusOnCreate = connectionStatusOnCreate;
+        this.closeListener = closeListener;
+        this.gtidRequirement = gtidRequirement;
+        this.serverStatus = serverStatus;
+    }
+
+    String getServer() {
+        return server;
+    }
+
+    @FunctionalInterface
+    interface ServerStatusSource {
+        Optional<ConnectionStatus> latestStatus();
+    }
+
+    @FunctionalInterface
+    interface GtidRequirement {
+        void requireAtLeast(Connection realConnection, GtidSet gtidSet) throws SQLException;
+    }
+
+    /**
+     * Makes sure that reads of this connection see given transactions, for example writes made earlier via master.
+     * Returns right away when server is already known to have executed them, otherwise waits for at most
+     * gtidWaitMs of jdbc url.
+     *
+     * @param gtidSet MySQL GTID set, or MariaDB GTID position
+     * @throws SQLTransientConnectionException when server did not execute given transactions in time
+     */
+    public void requireAtLeast(String gtidSet) throws SQLException {
+        gtidRequirement.requireAtLeast(realConnection, GtidSet.parse(gtidSet));
+    }
+
+    private void requireGoodEnoughServer() throws SQLTransientConnectionException {
+        final Optional<ConnectionStatus> status = serverStatus.latestStatus();
+        if(status.isPresent() && status.get().priority < wantedConnectionStatus.priority) {
+            throw new SQLTransientConnectionException("Status of server " + server + " is " + status.get()
+                    + ", wanted at least " + wantedConnectionStatus, connectionFailureSqlState);
+        }
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        final Object event = DriverEvents.get().beginValidation();
+        final ConnectionStatus currentStatus = connectionChecker.connectionStatus(realConnection, timeout);
+        final boolean valid = currentStatus.priority >= wantedConnectionStatus.priority && currentStatus.priority >= connectionStatusOnCreate.priority;
+        DriverMetrics.shared().validated(valid);
+        DriverEvents.get().validated(event, server, currentStatus, valid);
+        return valid;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        } else if(iface.isInstance(realConnection)) {
+            return iface.cast(realConnection);
+        }
+        return realConnection.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || iface.isInstance(realConnection) || realConnection.isWrapperFor(iface);
+    }
+
+    private void notifyClosed() {
+        if(closed.compareAndSet(false, true)) {
+            closeListener.run();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return realConnection.toString();
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return realConnection.nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        realConnection.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return realConnection.getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        realConnection.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        realConnection.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            realConnection.close();
+        } finally {
+            notifyClosed();
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return realConnection.isClosed();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return realConnection.getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        realConnection.setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        return realConnection.isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        realConnection.setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return realConnection.getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        realConnection.setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return realConnection.getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return realConnection.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        realConnection.clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return realConnection.getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        realConnection.setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        realConnection.setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return realConnection.getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return realConnection.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return realConnection.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        realConnection.rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        realConnection.releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        requireGoodEnoughServer();
+        return realConnection.prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return realConnection.createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return realConnection.createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return realConnection.createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return realConnection.createSQLXML();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        realConnection.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        realConnection.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return realConnection.getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return realConnection.getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return realConnection.createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return realConnection.createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        realConnection.setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return realConnection.getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            realConnection.abort(executor);
+        } finally {
+            notifyClosed();
+        }
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        realConnection.setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return realConnection.getNetworkTimeout();
+    }
+}
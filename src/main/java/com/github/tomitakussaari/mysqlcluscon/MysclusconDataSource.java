@@ -0,0 +1,324 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.github.tomitakussaari.mysqlcluscon.Params.*;
+
+/**
+ * Data source with connection pool, that keeps separate pool for each server of cluster. Pools follow statuses
+ * seen by health monitor: pool of server is drained by health monitor as soon as it sees status of server drop below
+ * wanted connectionStatus, and each server that is good enough gets minIdlePerServer connections opened in advance.
+ * Connections are closed after maxLifetimeMs, and idle connections over minIdlePerServer after idleTimeoutMs.
+ * <p>
+ * Health monitor is always used, with refresh interval of healthCheckIntervalMs, or one second if url does not have it.
+ */
+public class MysclusconDataSource implements DataSource, AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(MysclusconDataSource.class.getName());
+    private static final ScheduledExecutorService maintenanceScheduler =
+            Executors.newSingleThreadScheduledExecutor(MysclusconDriver.daemonThreadFactory("myscluscon-pool"));
+
+    private final MysclusconDriver driver;
+    private final ConnectionSettings settings;
+    private final ClusterState cluster;
+    private final Properties info;
+    private final int maxPoolSize;
+    private final int minIdlePerServer;
+    private final long connectionWaitInMs;
+    private final long idleTimeoutInMs;
+    private final long maxLifetimeInMs;
+    private final long validateAfterIdleInMs;
+    private final Semaphore borrowPermits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final Map<String, ServerPool> serverPools = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> scheduledMaintenance;
+    private final ClusterHealthMonitor.StatusListener statusListener = this::statusChanged;
+    private volatile ClusterHealthMonitor followedMonitor;
+    private volatile boolean closed;
+    private volatile PrintWriter logWriter;
+    private volatile int loginTimeout;
+
+    public MysclusconDataSource(String jdbcUrl, String user, String password) throws SQLException {
+        this(jdbcUrl, credentials(user, password));
+    }
+
+    public MysclusconDataSource(String jdbcUrl, Properties info) throws SQLException {
+        this(new MysclusconDriver(), jdbcUrl, info, maintenanceScheduler);
+    }
+
+    MysclusconDataSource(MysclusconDriver driver, String jdbcUrl, Properties info, ScheduledExecutorService scheduler) throws SQLException {
+        if(!driver.acceptsURL(jdbcUrl)) {
+            throw new SQLException("Not a myscluscon url: " + jdbcUrl);
+        }
+        this.driver = driver;
+        this.settings = driver.settings(withHealthCheckInterval(jdbcUrl, driver.settings(jdbcUrl)));
+        if(settings.replication.isPresent()) {
+            throw new SQLFeatureNotSupportedException("Data source does not support replication urls, use driver with pool of your choice: " + jdbcUrl);
+        }
+        this.cluster = driver.cluster(settings);
+        this.info = info;
+        this.maxPoolSize = Math.max(1, URLHelpers.getIntParameter(settings.urlInfo.queryParameters, MAX_POOL_SIZE_PARAM, DEFAULT_MAX_POOL_SIZE));
+        this.minIdlePerServer = URLHelpers.getIntParameter(settings.urlInfo.queryParameters, MIN_IDLE_PER_SERVER_PARAM, DEFAULT_MIN_IDLE_PER_SERVER);
+        this.connectionWaitInMs = URLHelpers.getLongParameter(settings.urlInfo.queryParameters, CONNECTION_WAIT_MS_PARAM, DEFAULT_CONNECTION_WAIT_MS);
+        this.idleTimeoutInMs = URLHelpers.getLongParameter(settings.urlInfo.queryParameters, IDLE_TIMEOUT_MS_PARAM, DEFAULT_IDLE_TIMEOUT_MS);
+        this.maxLifetimeInMs = URLHelpers.getLongParameter(settings.urlInfo.queryParameters, MAX_LIFETIME_MS_PARAM, DEFAULT_MAX_LIFETIME_MS);
+        this.validateAfterIdleInMs = URLHelpers.getLongParameter(settings.urlInfo.queryParameters, VALIDATE_AFTER_IDLE_MS_PARAM, DEFAULT_VALIDATE_AFTER_IDLE_MS);
+        this.borrowPermits = new Semaphore(maxPoolSize, true);
+        this.scheduledMaintenance = scheduler.scheduleWithFixedDelay(this::maintain, 0,
+                settings.healthCheckIntervalInMs.getAsLong(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if(closed) {
+            throw new SQLException("Data source is closed");
+        }
+        acquireBorrowPermit();
+        try {
+            return new PooledConnection(borrowOrOpen(), this::returned);
+        } catch (SQLException | RuntimeException e) {
+            borrowPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Connections are pooled with credentials of data source
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use credentials of data source");
+    }
+
+    /**
+     * Closes idle connections, and connections in use when they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if(scheduledMaintenance != null) {
+            scheduledMaintenance.cancel(false);
+        }
+        Optional.ofNullable(followedMonitor).ifPresent(monitor -> monitor.removeStatusListener(statusListener));
+        serverPools.values().forEach(ServerPool::drain);
+    }
+
+    /**
+     * Closes expired connections, and opens idle connections to servers that are good enough.
+     * Pools follow status changes seen by health monitor as they happen, not only when maintained.
+     */
+    void maintain() {
+        try {
+            serverPools.values().forEach(pool -> pool.discardExpired(minIdlePerServer));
+            driver.healthMonitor(settings, cluster, info).ifPresent(monitor -> {
+                follow(monitor);
+                warmUp(monitor);
+            });
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "Error while maintaining connection pool " + e.getMessage());
+        }
+    }
+
+    int totalConnections() {
+        return totalConnections.get();
+    }
+
+    Optional<ServerPool> serverPool(String server) {
+        return Optional.ofNullable(serverPools.get(server));
+    }
+
+    private void acquireBorrowPermit() throws SQLException {
+        try {
+            if(!borrowPermits.tryAcquire(connectionWaitInMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("No connection available within " + connectionWaitInMs + "ms, all "
+                        + maxPoolSize + " connections are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for connection", e);
+        }
+    }
+
+    private ServerPool.Entry borrowOrOpen() throws SQLException {
+        for(String server : settings.serverSelectionStrategy.order(new ArrayList<>(serverPools.keySet()), cluster)) {
+            final Optional<ServerPool.Entry> idle = serverPools.get(server).borrow();
+            if(idle.isPresent()) {
+                return idle.get();
+            }
+        }
+        reserveRoomForNewConnection();
+        try {
+            final MysclusconConnection connection = driver.connect(settings, info);
+            return pool(connection.getServer()).added(connection);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Borrower holds permit, so when pool is full, at least one of its connections is idle and can be closed.
+     */
+    private void reserveRoomForNewConnection() throws SQLException {
+        while(!tryReserve()) {
+            if(serverPools.values().stream().noneMatch(ServerPool::discardIdle)) {
+                throw new SQLTransientConnectionException("Connection pool is full");
+            }
+        }
+    }
+
+    private boolean tryReserve() {
+        int total;
+        do {
+            total = totalConnections.get();
+            if(total >= maxPoolSize) {
+                return false;
+            }
+        } while(!totalConnections.compareAndSet(total, total + 1));
+        return true;
+    }
+
+    private void returned(ServerPool.Entry entry, boolean broken) {
+        try {
+            final ServerPool pool = pool(entry.connection.getServer());
+            if(broken || closed) {
+                pool.discard(entry);
+            } else {
+                pool.returned(entry);
+            }
+        } finally {
+            borrowPermits.release();
+        }
+    }
+
+    /**
+     * Monitor is replaced when it is stopped and started again, so listener is added to monitor given by driver on each maintenance.
+     * Statuses that monitor already knows are followed right away, as listener is told only about changes.
+     */
+    private void follow(ClusterHealthMonitor monitor) {
+        if(monitor.addStatusListener(statusListener)) {
+            followedMonitor = monitor;
+            serverPools.values().forEach(pool -> followStatus(pool, monitor.status(pool.server)));
+        }
+    }
+
+    private void statusChanged(String server, ConnectionStatus status) {
+        Optional.ofNullable(serverPools.get(server)).ifPresent(pool -> followStatus(pool, Optional.of(status)));
+    }
+
+    private void followStatus(ServerPool pool, Optional<ConnectionStatus> status) {
+        final boolean usable = status
+                .map(known -> known.priority >= settings.wantedConnectionStatus.priority)
+                .orElse(true);
+        if(usable) {
+            pool.markUsable();
+        } else {
+            if(pool.isUsable()) {
+                LOGGER.info(() -> "Draining connection pool of " + pool.server + ", its status is " + status.orElse(null));
+            }
+            pool.drain();
+        }
+    }
+
+    private void warmUp(ClusterHealthMonitor monitor) {
+        final List<String> servers = cluster.topology.servers(settings.urlInfo.servers);
+        for(String server : monitor.serversWithStatusAtLeast(servers, settings.wantedConnectionStatus)) {
+            final ServerPool pool = pool(server);
+            while(!closed && pool.idleCount() < minIdlePerServer && tryReserve()) {
+                if(!openIdleConnection(pool, monitor.status(server).orElse(ConnectionStatus.DEAD))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean openIdleConnection(ServerPool pool, ConnectionStatus monitoredStatus) {
+        try {
+            final Optional<MysclusconConnection> connection = driver.connectToServer(settings, pool.server, monitoredStatus, info);
+            if(connection.isPresent()) {
+                pool.returned(pool.added(connection.get()));
+                return true;
+            }
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Unable to open idle connection to " + pool.server + " " + e.getMessage());
+        }
+        totalConnections.decrementAndGet();
+        return false;
+    }
+
+    private ServerPool pool(String server) {
+        final ServerPool pool = serverPools.get(server);
+        return pool != null ? pool : serverPools.computeIfAbsent(server,
+                s -> new ServerPool(s, totalConnections, idleTimeoutInMs, maxLifetimeInMs, validateAfterIdleInMs));
+    }
+
+    private static String withHealthCheckInterval(String jdbcUrl, ConnectionSettings settings) {
+        if(settings.healthCheckIntervalInMs.isPresent()) {
+            return jdbcUrl;
+        }
+        return jdbcUrl + (jdbcUrl.contains("?") ? "&" : "?") + HEALTH_CHECK_INTERVAL_MS_PARAM + "=" + DEFAULT_POOL_HEALTH_CHECK_INTERVAL_MS;
+    }
+
+    private static Properties credentials(String user, String password) {
+        final Properties info = new Properties();
+        info.setProperty("user", user);
+        info.setProperty("password", password);
+        return info;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return LOGGER;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -2,19 +2,32 @@ package com.github.tomitakussaari.mysqlcluscon;
 
 import com.github.tomitakussaari.mysqlcluscon.URLHelpers.URLInfo;
 import com.github.tomitakussaari.mysqlcluscon.galera.GaleraClusterConnectionChecker;
+import com.github.tomitakussaari.mysqlcluscon.galera.GaleraTopologyDiscovery;
 import com.github.tomitakussaari.mysqlcluscon.read_cluster.ReadClusterConnectionChecker;
+import com.github.tomitakussaari.mysqlcluscon.read_cluster.ReadClusterTopologyDiscovery;
 import com.google.auto.service.AutoService;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
-import java.lang.reflect.Proxy;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
 
-import static com.github.tomitakussaari.mysqlcluscon.Params.DEFAULT_CONNECT_TIMEOUT_IN_MS;
-import static com.github.tomitakussaari.mysqlcluscon.Params.MYSQL_CONNECT_TIMEOUT_PARAM;
+import static com.github.tomitakussaari.mysqlcluscon.Params.CONNECTION_WAIT_MS_PARAM;
+import static com.github.tomitakussaari.mysqlcluscon.Params.DEFAULT_CONNECTION_WAIT_MS;
+import static com.github.tomitakussaari.mysqlcluscon.Params.DEFAULT_HEDGE_AFTER_MS;
+import static com.github.tomitakussaari.mysqlcluscon.Params.REQUIRED_GTID_SET_PROPERTY;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 
@@ -30,17 +43,26 @@ public class MysclusconDriver implements Driver {
     static final String oldMariadbGaleraClusterConnectorName = "jdbc:myscluscon:mariadb:galera:cluster";
     static final String mariadbGaleraClusterConnectorName = "jdbc:myscluscon:mariadb:galera";
 
+    static final String mysqlReplicationConnectorName = "jdbc:myscluscon:mysql:replication";
+    static final String mariadbReplicationConnectorName = "jdbc:myscluscon:mariadb:replication";
+
     @RequiredArgsConstructor
     @Getter
     public enum ConnectionType {
-        MARIADB_READ_CLUSTER("jdbc:mariadb", singletonList(mariadbReadClusterConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters)),
-        MARIADB_GALERA("jdbc:mariadb", asList(oldMariadbGaleraClusterConnectorName, mariadbGaleraClusterConnectorName), urlInfo -> new GaleraClusterConnectionChecker()),
-        MYSQL_READ_CLUSTER("jdbc:mysql", singletonList(mysqlReadClusterConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters)),
-        MYSQL_GALERA("jdbc:mysql", asList(oldGaleraClusterConnectorName, galeraClusterConnectorName), urlInfo -> new GaleraClusterConnectionChecker());
+        MARIADB_READ_CLUSTER("jdbc:mariadb", singletonList(mariadbReadClusterConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters), new ReadClusterTopologyDiscovery()),
+        MARIADB_GALERA("jdbc:mariadb", asList(oldMariadbGaleraClusterConnectorName, mariadbGaleraClusterConnectorName), urlInfo -> new GaleraClusterConnectionChecker(urlInfo.queryParameters), new GaleraTopologyDiscovery()),
+        MYSQL_READ_CLUSTER("jdbc:mysql", singletonList(mysqlReadClusterConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters), new ReadClusterTopologyDiscovery()),
+        MYSQL_GALERA("jdbc:mysql", asList(oldGaleraClusterConnectorName, galeraClusterConnectorName), urlInfo -> new GaleraClusterConnectionChecker(urlInfo.queryParameters), new GaleraTopologyDiscovery()),
+        /**
+         * First server of url is master, others are its replicas
+         */
+        MARIADB_REPLICATION("jdbc:mariadb", singletonList(mariadbReplicationConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters), new ReadClusterTopologyDiscovery()),
+        MYSQL_REPLICATION("jdbc:mysql", singletonList(mysqlReplicationConnectorName), urlInfo -> new ReadClusterConnectionChecker(urlInfo.queryParameters), new ReadClusterTopologyDiscovery());
 
         private final String driverPrefix;
         private final List<String> urlPrefixes;
         private final ConnectionCheckerSupplier connectionCheckerSupplier;
+        private final TopologyDiscovery topologyDiscovery;
 
         static ConnectionType fromProtocol(String protocol) {
             for(ConnectionType driver : ConnectionType.values()) {
@@ -51,12 +73,34 @@ public class MysclusconDriver implements Driver {
             throw new IllegalArgumentException("Unknown protocol: "+protocol);
         }
 
+        boolean isReplication() {
+            return this == MARIADB_REPLICATION || this == MYSQL_REPLICATION;
+        }
+
+        /**
+         * @return type used for connecting to master or replicas of replication, otherwise this
+         */
+        ConnectionType memberType() {
+            switch(this) {
+                case MARIADB_REPLICATION:
+                    return MARIADB_READ_CLUSTER;
+                case MYSQL_REPLICATION:
+                    return MYSQL_READ_CLUSTER;
+                default:
+                    return this;
+            }
+        }
+
         @FunctionalInterface
         interface ConnectionCheckerSupplier {
             ConnectionChecker get(URLInfo urlInfo);
         }
     }
 
+    private static final String[] acceptedUrlPrefixes = Stream.of(ConnectionType.values())
+            .flatMap(connectionType -> connectionType.getUrlPrefixes().stream())
+            .toArray(String[]::new);
+
     static {
         try {
             DriverManager.registerDriver(new MysclusconDriver());
@@ -65,32 +109,271 @@ public class MysclusconDriver implements Driver {
         }
     }
 
-    private final ServerBlackList serverBlackList = new ServerBlackList();
+    private static final ExecutorService probeExecutor = DriverExecutors.newExecutor("myscluscon-probe");
+    private static final ExecutorService healthCheckExecutor = DriverExecutors.newExecutor("myscluscon-health-check");
+    private static final ScheduledExecutorService healthCheckScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("myscluscon-health-check"));
+    private static final ScheduledExecutorService discoveryScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("myscluscon-discovery"));
+    private static final ScheduledExecutorService asyncScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("myscluscon-async"));
+
+    private final ConnectionSettingsCache connectionSettings = new ConnectionSettingsCache(this::stopHealthMonitors);
+    private final ClusterRegistry clusterRegistry;
+
+    public MysclusconDriver() {
+        this(ClusterRegistry.shared());
+    }
+
+    MysclusconDriver(ClusterRegistry clusterRegistry) {
+        this.clusterRegistry = clusterRegistry;
+    }
 
     @Override
     public Connection connect(String jdbcUrl, Properties info) throws SQLException {
         if(acceptsURL(jdbcUrl)) {
-            URLInfo urlInfo = URLHelpers.parse(jdbcUrl);
-            validateQueryParameters(urlInfo.queryParameters, jdbcUrl);
-            final ConnectionStatus wantedConnectionStatus = getWantedConnectionStatus(urlInfo.queryParameters);
-            final ConnectionChecker connectionChecker = urlInfo.connectionType.getConnectionCheckerSupplier().get(urlInfo);
-            final ConnectionInfo connectionInfo = createActualConnection(urlInfo, connectionChecker, info, wantedConnectionStatus);
-            return createProxyConnection(connectionChecker, connectionInfo.getConnection(), wantedConnectionStatus, connectionInfo.getStatus());
+            final ConnectionSettings settings = settings(jdbcUrl);
+            if(settings.replication.isPresent()) {
+                return connectReplication(settings.replication.get(), info);
+            }
+            return connect(settings, info);
         } else {
             return null;
         }
     }
 
-    private void validateQueryParameters(Map<String, List<String>> queryParameters, String jdbcUrl) {
-        if(!queryParameters.containsKey(MYSQL_CONNECT_TIMEOUT_PARAM)) {
-            LOGGER.info(() -> "No connect timeout specified for URL: "+jdbcUrl+ " using default: "+DEFAULT_CONNECT_TIMEOUT_IN_MS);
-            queryParameters.put(MYSQL_CONNECT_TIMEOUT_PARAM, singletonList(DEFAULT_CONNECT_TIMEOUT_IN_MS.toString()));
+    MysclusconConnection connect(ConnectionSettings settings, Properties info) throws SQLException {
+        final ClusterState cluster = cluster(settings);
+        final Optional<GtidSet> requiredGtidSet = requiredGtidSet(info);
+        return wrap(createActualConnection(settings, cluster, info, requiredGtidSet), settings, cluster);
+    }
+
+    /**
+     * Connects without blocking calling thread, like {@link #connectAsync(String, Properties, Executor)},
+     * using same executor that driver uses for parallel connect attempts.
+     */
+    public CompletableFuture<Connection> connectAsync(String jdbcUrl, Properties info) {
+        return connectAsync(jdbcUrl, info, probeExecutor);
+    }
+
+    /**
+     * Connects without blocking calling thread. Each connect attempt to server, with its status check, is run as its own task
+     * in given executor, and no task waits for another one, so executor can be bounded. Hedge delays and timeout are waited
+     * with scheduler of driver.
+     * <p>
+     * Future fails with {@link SQLTimeoutException} when no connection was found within connectionWaitMs,
+     * and connection that is found after that is closed.
+     */
+    public CompletableFuture<Connection> connectAsync(String jdbcUrl, Properties info, Executor executor) {
+        try {
+            if(!acceptsURL(jdbcUrl)) {
+                throw new SQLException("Not a myscluscon url: " + jdbcUrl);
+            }
+            final ConnectionSettings settings = settings(jdbcUrl);
+            final CompletableFuture<Connection> connection;
+            if(settings.replication.isPresent()) {
+                final ConnectionSettings.Replication replication = settings.replication.get();
+                connection = connectAsync(replication.master, masterInfo(info), executor)
+                        .thenApply(master -> ReplicationConnection.of(master, () -> connect(replication.replicas, info)));
+            } else {
+                connection = connectAsync(settings, info, executor).thenApply(wrapped -> wrapped);
+            }
+            return withTimeout(connection, URLHelpers.getLongParameter(settings.urlInfo.queryParameters, CONNECTION_WAIT_MS_PARAM, DEFAULT_CONNECTION_WAIT_MS));
+        } catch (SQLException | RuntimeException e) {
+            final CompletableFuture<Connection> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    CompletableFuture<MysclusconConnection> connectAsync(ConnectionSettings settings, Properties info, Executor executor) throws SQLException {
+        final ClusterState cluster = cluster(settings);
+        final Optional<GtidSet> requiredGtidSet = requiredGtidSet(info);
+        final List<String> servers = cluster.serverBlackList.withoutBlackListed(candidateServers(settings, cluster, info));
+        final CompletableFuture<Optional<ConnectionInfo>> monitoredConnection = healthMonitor(settings, cluster, info)
+                .map(monitor -> AsyncServerProbe.sequential(executor, monitoredServers(monitor, servers, cluster, settings, requiredGtidSet),
+                        requiringExecuted(requiredGtidSet, cluster, settings, monitoredServerConnector(monitor, cluster, info, settings)))
+                        .start(connection -> true, others -> Optional.empty()))
+                .orElse(CompletableFuture.completedFuture(Optional.empty()));
+        return monitoredConnection
+                .thenCompose(monitored -> monitored.isPresent() ? CompletableFuture.completedFuture(monitored)
+                        : startAsyncProbe(inSelectionOrder(servers, cluster, settings, requiredGtidSet), cluster, info, settings, requiredGtidSet, executor)
+                            .start(connection -> isBestPossible(Optional.of(connection)), others -> findBestConnection(others, settings.wantedConnectionStatus)))
+                .thenApplyAsync(connection -> {
+                    try {
+                        return wrap(connection.orElseThrow(() -> noValidHost(servers, requiredGtidSet)), settings, cluster);
+                    } catch (SQLException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor);
+    }
+
+    /**
+     * Master has always executed its own writes, so only replicas are required to have executed required GTID set
+     */
+    private Connection connectReplication(ConnectionSettings.Replication replication, Properties info) throws SQLException {
+        return ReplicationConnection.of(connect(replication.master, masterInfo(info)), () -> connect(replication.replicas, info));
+    }
+
+    private static Properties masterInfo(Properties info) {
+        final Properties masterInfo = new Properties();
+        if(info != null) {
+            masterInfo.putAll(info);
+            masterInfo.remove(REQUIRED_GTID_SET_PROPERTY);
+        }
+        return masterInfo;
+    }
+
+    /**
+     * Fails future with timeout, without waiting in any thread. Connection that is found too late is closed.
+     */
+    private static CompletableFuture<Connection> withTimeout(CompletableFuture<Connection> connection, long timeoutInMs) {
+        final CompletableFuture<Connection> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timeout = asyncScheduler.schedule(
+                () -> result.completeExceptionally(new SQLTimeoutException("No connection found within " + timeoutInMs + "ms")),
+                timeoutInMs, TimeUnit.MILLISECONDS);
+        connection.whenComplete((conn, error) -> {
+            timeout.cancel(false);
+            if(error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else if(!result.complete(conn)) {
+                closeQuietly(conn);
+            }
+        });
+        return result;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Error while closing connection that was found too late " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens connection to given server, trusting status that health monitor has seen for it
+     */
+    Optional<MysclusconConnection> connectToServer(ConnectionSettings settings, String server, ConnectionStatus monitoredStatus,
+                                                   Properties info) throws SQLException {
+        final ClusterState cluster = cluster(settings);
+        final Optional<ConnectionInfo> connectionInfo = tryOpenConnection((c, timeout) -> monitoredStatus, info, settings.urlInfo, server);
+        if(!connectionInfo.isPresent()) {
+            cluster.serverBlackList.blackList(server, settings.blackListInitialInMs, settings.blackListMaxInMs);
+            return Optional.empty();
+        }
+        return Optional.of(wrap(connectionInfo.get(), settings, cluster));
+    }
+
+    ConnectionSettings settings(String jdbcUrl) throws SQLException {
+        return connectionSettings.get(jdbcUrl);
+    }
+
+    ClusterState cluster(ConnectionSettings settings) {
+        return clusterRegistry.cluster(settings.clusterKey);
+    }
+
+    /**
+     * Called when settings are evicted from cache. Monitors are shared by driver instances, so monitor that is
+     * still used via other driver is started again when it is used next time.
+     */
+    private void stopHealthMonitors(ConnectionSettings settings) {
+        if(settings.replication.isPresent()) {
+            stopHealthMonitors(settings.replication.get().master);
+            stopHealthMonitors(settings.replication.get().replicas);
+        } else {
+            cluster(settings).stopHealthMonitors(settings.urlInfo);
+        }
+    }
+
+    private MysclusconConnection wrap(ConnectionInfo connectionInfo, ConnectionSettings settings, ClusterState cluster) {
+        final String server = connectionInfo.getServer();
+        final MysclusconConnection.GtidRequirement gtidRequirement = (conn, gtidSet) -> requireExecuted(conn, server, gtidSet, cluster, settings);
+        final ConnectionChecker validationChecker = validationChecker(settings, cluster, server);
+        DriverMetrics.shared().chosen(connectionInfo.getStatus());
+        cluster.openConnections.opened(server);
+        return new MysclusconConnection(server, connectionInfo.getConnection(), validationChecker, settings.wantedConnectionStatus,
+                connectionInfo.getStatus(), () -> cluster.openConnections.closed(server), gtidRequirement,
+                serverStatusSource(settings, cluster, server));
+    }
+
+    /**
+     * Status seen by health monitor, or cached result of validation. Blacklist is not used, as single failed
+     * connect attempt does not mean that existing connections to server are broken.
+     */
+    private static MysclusconConnection.ServerStatusSource serverStatusSource(ConnectionSettings settings, ClusterState cluster, String server) {
+        final ClusterHealthMonitor monitor = cluster.existingHealthMonitor(settings.urlInfo);
+        if(monitor != null) {
+            return () -> monitor.status(server);
+        }
+        if(settings.validationCacheInMs > 0) {
+            return () -> cluster.serverStatusCache(settings.urlInfo).cachedStatus(server, settings.validationCacheInMs);
+        }
+        return Optional::empty;
+    }
+
+    private static Optional<GtidSet> requiredGtidSet(Properties info) throws SQLException {
+        final String gtidSet = info != null ? info.getProperty(REQUIRED_GTID_SET_PROPERTY) : null;
+        return gtidSet != null ? Optional.of(GtidSet.parse(gtidSet)) : Optional.empty();
+    }
+
+    /**
+     * Uses replication position seen by latest status check, and waits for server to catch up only when that is not enough
+     */
+    private static void requireExecuted(Connection conn, String server, GtidSet gtidSet, ClusterState cluster, ConnectionSettings settings) throws SQLException {
+        if(cluster.replicationPositions.hasExecuted(server, gtidSet)) {
+            return;
+        }
+        if(settings.gtidWaitInMs <= 0 || !gtidSet.awaitExecuted(conn, settings.gtidWaitInMs)) {
+            throw new SQLTransientConnectionException("Server " + server + " has not executed GTID set " + gtidSet);
+        }
+    }
+
+    /**
+     * Connection to server that has not executed required GTID set is closed, and next server is tried instead.
+     * Server is not blacklisted for that, as it is otherwise working fine.
+     */
+    private static Function<String, Optional<ConnectionInfo>> requiringExecuted(Optional<GtidSet> requiredGtidSet, ClusterState cluster,
+                                                                              ConnectionSettings settings,
+                                                                              Function<String, Optional<ConnectionInfo>> connector) {
+        if(!requiredGtidSet.isPresent()) {
+            return connector;
+        }
+        return server -> connector.apply(server)
+                .filter(conn -> conn.getStatus() == ConnectionStatus.DEAD || hasExecuted(conn, requiredGtidSet.get(), cluster, settings));
+    }
+
+    private static boolean hasExecuted(ConnectionInfo conn, GtidSet gtidSet, ClusterState cluster, ConnectionSettings settings) {
+        try {
+            requireExecuted(conn.getConnection(), conn.getServer(), gtidSet, cluster, settings);
+            return true;
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Not using connection to " + conn.getServer() + ": " + e.getMessage());
+            conn.close();
+            return false;
+        }
+    }
+
+    private static SQLException noValidHost(List<String> servers, Optional<GtidSet> requiredGtidSet) {
+        if(requiredGtidSet.isPresent()) {
+            return new SQLTransientConnectionException("Unable to open connection, no valid host that has executed GTID set "
+                    + requiredGtidSet.get() + " found from servers: " + servers);
+        }
+        return new SQLException("Unable to open connection, no valid host found from servers: " + servers);
+    }
+
+    private ConnectionChecker validationChecker(ConnectionSettings settings, ClusterState cluster, String server) {
+        if(settings.validationCacheInMs > 0) {
+            return cluster.serverStatusCache(settings.urlInfo).cachingChecker(server, settings.validationCacheInMs, settings.timedConnectionChecker(server));
         }
+        return settings.timedConnectionChecker(server);
     }
 
     @Override
     public boolean acceptsURL(String url) throws SQLException {
-        return Stream.of(ConnectionType.values()).flatMap(ct -> ct.getUrlPrefixes().stream()).anyMatch(url::startsWith);
+        for(String prefix : acceptedUrlPrefixes) {
+            if(url.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -118,28 +401,107 @@ public class MysclusconDriver implements Driver {
         return LOGGER;
     }
 
-    private ConnectionInfo createActualConnection(URLInfo urlInfo, ConnectionChecker connectionChecker, Properties info, ConnectionStatus leastUsableConnection) throws SQLException {
-        final List<String> servers = serverBlackList.withoutBlackListed(urlInfo.servers);
-        return tryToOpenConnectionToValidServer(servers, connectionChecker, info, urlInfo, leastUsableConnection)
-                .orElseThrow(() -> new SQLException("Unable to open connection, no valid host found from servers: " + servers));
+    private ConnectionInfo createActualConnection(ConnectionSettings settings, ClusterState cluster, Properties info,
+                                                  Optional<GtidSet> requiredGtidSet) throws SQLException {
+        final List<String> servers = cluster.serverBlackList.withoutBlackListed(candidateServers(settings, cluster, info));
+        Optional<ConnectionInfo> connection = healthMonitor(settings, cluster, info)
+                .flatMap(monitor -> tryToOpenConnectionToMonitoredServer(monitor, cluster, servers, info, settings, requiredGtidSet));
+        if(!connection.isPresent()) {
+            connection = tryToOpenConnectionToValidServer(servers, cluster, info, settings, requiredGtidSet);
+        }
+        return connection.orElseThrow(() -> noValidHost(servers, requiredGtidSet));
     }
 
-    private Optional<ConnectionInfo> tryToOpenConnectionToValidServer(List<String> servers, ConnectionChecker connectionChecker,
-                                                                Properties info, URLInfo urlInfo,
-                                                                ConnectionStatus wantedConnectionStatus) throws SQLException {
-        LOGGER.fine(() -> "Trying to connect to servers " + servers + " from url " + urlInfo);
+    /**
+     * Servers known to have executed required GTID set are tried first. Other servers are tried after them,
+     * as their position is seen when their status is checked, or they can be waited to catch up.
+     */
+    private static List<String> preferringServersThatHaveExecuted(Optional<GtidSet> requiredGtidSet, ClusterState cluster, List<String> servers) {
+        if(!requiredGtidSet.isPresent()) {
+            return servers;
+        }
+        final List<String> ordered = new ArrayList<>(cluster.replicationPositions.serversThatHaveExecuted(servers, requiredGtidSet.get()));
+        servers.stream().filter(server -> !ordered.contains(server)).forEach(ordered::add);
+        return ordered;
+    }
+
+    /**
+     * Servers of url, and when topology discovery is enabled, servers discovered from cluster
+     */
+    private List<String> candidateServers(ConnectionSettings settings, ClusterState cluster, Properties info) {
+        if(!settings.discoveryIntervalInMs.isPresent()) {
+            return settings.urlInfo.servers;
+        }
+        return cluster.topology
+                .start(discoveryScheduler, settings.discoveryIntervalInMs.getAsLong(), settings.discoverySources,
+                        settings.urlInfo.connectionType.getTopologyDiscovery(),
+                        server -> openRealConnection(info, settings.urlInfo.asJdbcConnectUrl(server)))
+                .servers(settings.urlInfo.servers);
+    }
+
+    Optional<ClusterHealthMonitor> healthMonitor(ConnectionSettings settings, ClusterState cluster, Properties info) {
+        if(!settings.healthCheckIntervalInMs.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(cluster.healthMonitor(settings.urlInfo, info, urlInfo -> {
+            final long refreshIntervalInMs = settings.healthCheckIntervalInMs.getAsLong();
+            LOGGER.info(() -> "Starting health monitor for " + urlInfo + " with refresh interval " + refreshIntervalInMs + "ms");
+            return new ClusterHealthMonitor(() -> cluster.topology.servers(urlInfo.servers), settings::timedConnectionChecker,
+                    server -> openRealConnection(info, urlInfo.asJdbcConnectUrl(server)), cluster)
+                    .start(healthCheckScheduler, healthCheckExecutor, refreshIntervalInMs);
+        }));
+    }
+
+    /**
+     * Uses statuses collected by health monitor, instead of checking status of new connection.
+     */
+    private Optional<ConnectionInfo> tryToOpenConnectionToMonitoredServer(ClusterHealthMonitor monitor, ClusterState cluster, List<String> servers,
+                                                                          Properties info, ConnectionSettings settings,
+                                                                          Optional<GtidSet> requiredGtidSet) {
+        final Function<String, Optional<ConnectionInfo>> connector = requiringExecuted(requiredGtidSet, cluster, settings,
+                monitoredServerConnector(monitor, cluster, info, settings));
+        for(String server : monitoredServers(monitor, servers, cluster, settings, requiredGtidSet)) {
+            final Optional<ConnectionInfo> conn = connector.apply(server);
+            if(conn.isPresent()) {
+                return conn;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private List<String> monitoredServers(ClusterHealthMonitor monitor, List<String> servers, ClusterState cluster, ConnectionSettings settings,
+                                          Optional<GtidSet> requiredGtidSet) {
+        return preferringServersThatHaveExecuted(requiredGtidSet, cluster,
+                monitor.serversWithStatusAtLeast(settings.serverSelectionStrategy.order(servers, cluster), settings.wantedConnectionStatus));
+    }
+
+    private Function<String, Optional<ConnectionInfo>> monitoredServerConnector(ClusterHealthMonitor monitor, ClusterState cluster, Properties info,
+                                                                                ConnectionSettings settings) {
+        return server -> {
+            final ConnectionStatus monitoredStatus = monitor.status(server).orElse(ConnectionStatus.DEAD);
+            final Optional<ConnectionInfo> conn = tryOpenConnection((c, timeout) -> monitoredStatus, info, settings.urlInfo, server);
+            if(!conn.isPresent()) {
+                cluster.serverBlackList.blackList(server, settings.blackListInitialInMs, settings.blackListMaxInMs);
+            }
+            return conn;
+        };
+    }
+
+    private Optional<ConnectionInfo> tryToOpenConnectionToValidServer(List<String> servers, ClusterState cluster, Properties info,
+                                                                      ConnectionSettings settings, Optional<GtidSet> requiredGtidSet) throws SQLException {
+        LOGGER.fine(() -> "Trying to connect to servers " + servers + " from url " + settings.urlInfo);
 
         List<ConnectionInfo> activeConnections = new ArrayList<>();
-        try {
-            for(String server : inRandomOrder(servers)) {
-                Optional<ConnectionInfo> conn = tryOpenConnection(connectionChecker, info, urlInfo, server);
+        try (ServerProbe probe = startProbe(inSelectionOrder(servers, cluster, settings, requiredGtidSet), cluster, info, settings, requiredGtidSet)) {
+            while(probe.hasNext()) {
+                Optional<ConnectionInfo> conn = probe.next().getConnection();
                 if(isBestPossible(conn)) {
                     return conn;
                 } else {
-                    addToBlackListIfDownAndReturn(server, conn).ifPresent(activeConnections::add);
+                    conn.ifPresent(activeConnections::add);
                 }
             }
-            Optional<ConnectionInfo> bestConnection = findBestConnection(activeConnections, wantedConnectionStatus);
+            Optional<ConnectionInfo> bestConnection = findBestConnection(activeConnections, settings.wantedConnectionStatus);
             bestConnection.ifPresent(activeConnections::remove);
             return bestConnection;
         } finally {
@@ -147,15 +509,60 @@ public class MysclusconDriver implements Driver {
         }
     }
 
-    private List<String> inRandomOrder(List<String> servers) {
-        List<String> randomOrderServers = new ArrayList<>(servers);
-        Collections.shuffle(randomOrderServers);
-        return randomOrderServers;
+    private ServerProbe startProbe(List<String> servers, ClusterState cluster, Properties info, ConnectionSettings settings,
+                                   Optional<GtidSet> requiredGtidSet) {
+        final Function<String, Optional<ConnectionInfo>> connector = checkingConnector(cluster, info, settings, requiredGtidSet);
+        switch(settings.probeMode) {
+            case PARALLEL:
+                return ConcurrentServerProbe.parallel(probeExecutor, servers, settings.probeParallelism, connector);
+            case HEDGED:
+                return ConcurrentServerProbe.hedged(probeExecutor, servers, settings.probeParallelism, hedgeDelayInMs(settings, cluster), connector);
+            default:
+                return new SequentialServerProbe(servers.iterator(), connector);
+        }
     }
 
-    private Optional<ConnectionInfo> addToBlackListIfDownAndReturn(String server, Optional<ConnectionInfo> conn) {
+    /**
+     * Status of server is checked in connect attempt, so that it is also run in executor
+     */
+    private AsyncServerProbe startAsyncProbe(List<String> servers, ClusterState cluster, Properties info, ConnectionSettings settings,
+                                             Optional<GtidSet> requiredGtidSet, Executor executor) {
+        final Function<String, Optional<ConnectionInfo>> connector = checkingConnector(cluster, info, settings, requiredGtidSet);
+        switch(settings.probeMode) {
+            case PARALLEL:
+                return AsyncServerProbe.parallel(executor, servers, settings.probeParallelism, connector);
+            case HEDGED:
+                return AsyncServerProbe.hedged(executor, asyncScheduler, servers, settings.probeParallelism, hedgeDelayInMs(settings, cluster), connector);
+            default:
+                return AsyncServerProbe.sequential(executor, servers, connector);
+        }
+    }
+
+    private long hedgeDelayInMs(ConnectionSettings settings, ClusterState cluster) {
+        if(settings.hedgeDelayInMs.isPresent()) {
+            return settings.hedgeDelayInMs.getAsLong();
+        }
+        return cluster.connectLatencies.percentile(95).orElse(DEFAULT_HEDGE_AFTER_MS);
+    }
+
+    /**
+     * Opens connection and checks its status, and whether server has executed required GTID set, so that
+     * next server is tried when either one is not good enough.
+     */
+    private Function<String, Optional<ConnectionInfo>> checkingConnector(ClusterState cluster, Properties info, ConnectionSettings settings,
+                                                                         Optional<GtidSet> requiredGtidSet) {
+        return requiringExecuted(requiredGtidSet, cluster, settings, server -> addToBlackListIfDownAndReturn(server,
+                tryOpenAndCheckConnection(cluster, settings.timedConnectionChecker(server), info, settings.urlInfo, server), cluster, settings));
+    }
+
+    private List<String> inSelectionOrder(List<String> servers, ClusterState cluster, ConnectionSettings settings, Optional<GtidSet> requiredGtidSet) {
+        return preferringServersThatHaveExecuted(requiredGtidSet, cluster, settings.serverSelectionStrategy.order(servers, cluster));
+    }
+
+    private Optional<ConnectionInfo> addToBlackListIfDownAndReturn(String server, Optional<ConnectionInfo> conn, ClusterState cluster,
+                                                                   ConnectionSettings settings) {
         if(conn.map(ConnectionInfo::getStatus).filter(ConnectionStatus.DEAD::equals).isPresent() || !conn.isPresent()) {
-            serverBlackList.blackList(server);
+            cluster.serverBlackList.blackList(server, settings.blackListInitialInMs, settings.blackListMaxInMs);
         }
         return conn;
     }
@@ -164,24 +571,49 @@ public class MysclusconDriver implements Driver {
         return conn.map(ConnectionInfo::getStatus).filter(status -> status == ConnectionStatus.OK).isPresent();
     }
 
+    private Optional<ConnectionInfo> tryOpenAndCheckConnection(ClusterState cluster, ConnectionChecker connectionChecker, Properties info,
+                                                               URLInfo urlInfo, String server) {
+        final long start = System.nanoTime();
+        final Optional<ConnectionInfo> conn = tryOpenConnection(connectionChecker, info, urlInfo, server);
+        conn.ifPresent(connectionInfo -> {
+            cluster.replicationLags.record(server, connectionInfo.getCheckResult());
+            cluster.replicationPositions.record(server, connectionInfo.getCheckResult());
+            final long latencyInNanos = System.nanoTime() - start;
+            cluster.connectLatencies.record(TimeUnit.NANOSECONDS.toMillis(latencyInNanos));
+            cluster.serverLatencies.record(server, latencyInNanos);
+        });
+        return conn;
+    }
+
     private Optional<ConnectionInfo> tryOpenConnection(ConnectionChecker connectionChecker, Properties info, URLInfo urlInfo, String server) {
-        return tryConnectingToHost(server, urlInfo, info).map(c -> new ConnectionInfo(c, connectionChecker));
+        return tryConnectingToHost(server, urlInfo, info).map(c -> new ConnectionInfo(server, c, connectionChecker));
     }
 
     Optional<ConnectionInfo> findBestConnection(List<ConnectionInfo> connections, ConnectionStatus wantedConnectionStatus) {
-        return connections.stream()
+        final Object event = DriverEvents.get().beginServerSelection();
+        final Optional<ConnectionInfo> best = connections.stream()
             .filter(connectionInfo -> connectionInfo.getStatus().priority >= wantedConnectionStatus.priority)
             .sorted((left, right) -> right.getStatus().priority.compareTo(left.getStatus().priority))
             .findFirst();
+        DriverEvents.get().serverSelected(event, connections.size(), best.map(ConnectionInfo::getServer).orElse(null),
+                best.map(ConnectionInfo::getStatus).orElse(null));
+        return best;
     }
 
     private Optional<Connection> tryConnectingToHost(String server, URLInfo urlInfo, Properties info) {
         LOGGER.fine(() -> "Trying to connect to host " + server);
         final String connectUrl = urlInfo.asJdbcConnectUrl(server);
+        final Object event = DriverEvents.get().beginConnect();
+        final long start = System.nanoTime();
         try {
             LOGGER.fine(() -> "Connecting to " + connectUrl);
-            return Optional.of(openRealConnection(info, connectUrl));
+            final Connection connection = openRealConnection(info, connectUrl);
+            DriverMetrics.shared().connectAttempted(server, true, System.nanoTime() - start);
+            DriverEvents.get().connected(event, server, true);
+            return Optional.of(connection);
         } catch(Exception e) {
+            DriverMetrics.shared().connectAttempted(server, false, System.nanoTime() - start);
+            DriverEvents.get().connected(event, server, false);
             LOGGER.info(() -> "Error while opening connection " + connectUrl + " " + e.getMessage());
             return Optional.empty();
         }
@@ -193,24 +625,25 @@ public class MysclusconDriver implements Driver {
     }
 
     Connection createProxyConnection(ConnectionChecker connectionChecker, Connection realConn, ConnectionStatus wantedConnectionStatus, ConnectionStatus connectionStatusOnCreate) {
-        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class}, (proxy, method, args) -> {
-            if(method.getName().equals("isValid")) {
-                ConnectionStatus currentStatus = connectionChecker.connectionStatus(realConn, (Integer) args[0]);
-                return currentStatus.priority >= wantedConnectionStatus.priority && currentStatus.priority >= connectionStatusOnCreate.priority;
-            } else {
-                return method.invoke(realConn, args);
-            }
-        });
+        return new MysclusconConnection(realConn, connectionChecker, wantedConnectionStatus, connectionStatusOnCreate);
     }
 
-    private ConnectionStatus getWantedConnectionStatus(Map<String, List<String>> queryParameters) {
-        return ConnectionStatus.from(
-                URLHelpers.getParameter(queryParameters, "connectionStatus", ConnectionStatus.STOPPED.toString())
-        ).orElse(ConnectionStatus.STOPPED);
+    static ThreadFactory daemonThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
+    Map<String, ConnectionStatus> monitoredStatuses(String jdbcUrl) throws SQLException {
+        final ConnectionSettings settings = settings(jdbcUrl);
+        return Optional.ofNullable(cluster(settings).existingHealthMonitor(settings.urlInfo))
+                .map(ClusterHealthMonitor::statuses)
+                .orElse(Collections.emptyMap());
+    }
 
     Collection<String> blackListedServers() {
-        return serverBlackList.blackListed();
+        return clusterRegistry.serverBlackList.blackListed();
     }
 }
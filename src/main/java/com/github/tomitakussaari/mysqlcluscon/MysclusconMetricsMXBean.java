@@ -0,0 +1,27 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Map;
+
+/**
+ * Metrics of driver, see {@link MetricsSnapshot} for meaning of each attribute
+ */
+public interface MysclusconMetricsMXBean {
+
+    Map<String, Long> getConnectAttempts();
+
+    Map<String, Long> getConnectFailures();
+
+    MetricsSnapshot.Latency getConnectLatency();
+
+    Map<String, MetricsSnapshot.Latency> getStatusQueryLatencies();
+
+    long getValidResults();
+
+    long getInvalidResults();
+
+    long getBlackListInsertions();
+
+    long getBlackListRemovals();
+
+    Map<String, Long> getChosenStatuses();
+}
@@ -0,0 +1,31 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Amount of connections driver has handed out to each server, and which have not been closed yet.
+ */
+class OpenConnections {
+
+    private final Map<String, AtomicInteger> openConnections = new ConcurrentHashMap<>();
+
+    void opened(String server) {
+        counterOf(server).incrementAndGet();
+    }
+
+    void closed(String server) {
+        counterOf(server).decrementAndGet();
+    }
+
+    int count(String server) {
+        final AtomicInteger counter = openConnections.get(server);
+        return counter != null ? counter.get() : 0;
+    }
+
+    private AtomicInteger counterOf(String server) {
+        final AtomicInteger counter = openConnections.get(server);
+        return counter != null ? counter : openConnections.computeIfAbsent(server, s -> new AtomicInteger());
+    }
+}
@@ -3,4 +3,40 @@ package com.github.tomitakussaari.mysqlcluscon;
 class Params {
     static final Integer DEFAULT_CONNECT_TIMEOUT_IN_MS = 500;
     static final String MYSQL_CONNECT_TIMEOUT_PARAM = "connectTimeout";
+
+    static final String PROBE_MODE_PARAM = "probeMode";
+    static final String PROBE_PARALLELISM_PARAM = "probeParallelism";
+    static final Integer DEFAULT_PROBE_PARALLELISM = 3;
+    static final String HEDGE_AFTER_MS_PARAM = "hedgeAfterMs";
+    static final Integer DEFAULT_HEDGE_AFTER_MS = 50;
+
+    static final String HEALTH_CHECK_INTERVAL_MS_PARAM = "healthCheckIntervalMs";
+
+    static final String VALIDATION_CACHE_MS_PARAM = "validationCacheMs";
+
+    static final String BLACKLIST_INITIAL_MS_PARAM = "blackListInitialMs";
+    static final String BLACKLIST_MAX_MS_PARAM = "blackListMaxMs";
+
+    static final String SERVER_SELECTION_PARAM = "serverSelection";
+    static final String SLOW_START_MS_PARAM = "slowStartMs";
+
+    static final String DISCOVERY_INTERVAL_MS_PARAM = "discoveryIntervalMs";
+    static final String DISCOVER_FROM_PARAM = "discoverFrom";
+
+    static final String REQUIRED_GTID_SET_PROPERTY = "requiredGtidSet";
+    static final String GTID_WAIT_MS_PARAM = "gtidWaitMs";
+
+    static final String MAX_POOL_SIZE_PARAM = "maxPoolSize";
+    static final Integer DEFAULT_MAX_POOL_SIZE = 10;
+    static final String MIN_IDLE_PER_SERVER_PARAM = "minIdlePerServer";
+    static final Integer DEFAULT_MIN_IDLE_PER_SERVER = 1;
+    static final String CONNECTION_WAIT_MS_PARAM = "connectionWaitMs";
+    static final Integer DEFAULT_CONNECTION_WAIT_MS = 30000;
+    static final Integer DEFAULT_POOL_HEALTH_CHECK_INTERVAL_MS = 1000;
+    static final String IDLE_TIMEOUT_MS_PARAM = "idleTimeoutMs";
+    static final Integer DEFAULT_IDLE_TIMEOUT_MS = 600000;
+    static final String MAX_LIFETIME_MS_PARAM = "maxLifetimeMs";
+    static final Integer DEFAULT_MAX_LIFETIME_MS = 1800000;
+    static final String VALIDATE_AFTER_IDLE_MS_PARAM = "validateAfterIdleMs";
+    static final Integer DEFAULT_VALIDATE_AFTER_IDLE_MS = 500;
 }
@@ -0,0 +1,425 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle to pooled connection, given out for one borrow. Closing handle returns connection to pool,
+ * after which handle can no longer be used, even though connection itself may already be in use by someone else.
+ * <p>
+ * Handle keeps track of session settings changed by borrower, and restores them when connection is returned.
+ * Connection whose type map, client info or network timeout was changed is not reused, as those can not be restored.
+ */
+class PooledConnection implements Connection {
+
+    private final ServerPool.Entry entry;
+    private final MysclusconConnection connection;
+    private final ReturnListener returnListener;
+    private final Set<SessionState.Property> changedSettings = EnumSet.noneOf(SessionState.Property.class);
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean reusable = true;
+
+    PooledConnection(ServerPool.Entry entry, ReturnListener returnListener) {
+        this.entry = entry;
+        this.connection = entry.connection;
+        this.returnListener = returnListener;
+    }
+
+    @FunctionalInterface
+    interface ReturnListener {
+        /**
+         * @param broken true when connection was aborted or could not be reset, and must not be used again
+         */
+        void returned(ServerPool.Entry entry, boolean broken);
+    }
+
+    private void requireOpen() throws SQLException {
+        if(closed.get()) {
+            throw new SQLException("Connection is closed");
+        }
+    }
+
+    private void changed(SessionState.Property property) {
+        synchronized (changedSettings) {
+            changedSettings.add(property);
+        }
+    }
+
+    private boolean resetSession() {
+        try {
+            if(!reusable || connection.isClosed()) {
+                return false;
+            }
+            synchronized (changedSettings) {
+                entry.initialState.restore(connection, changedSettings);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        if(closed.compareAndSet(false, true)) {
+            returnListener.returned(entry, !resetSession());
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) {
+        if(closed.compareAndSet(false, true)) {
+            returnListener.returned(entry, true);
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed.get() || connection.isClosed();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return !closed.get() && connection.isValid(timeout);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        requireOpen();
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return connection.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        requireOpen();
+        return iface.isInstance(this) || connection.isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return connection.toString();
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        requireOpen();
+        return connection.createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        requireOpen();
+        return connection.prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        requireOpen();
+        return connection.nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        requireOpen();
+        connection.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        requireOpen();
+        return connection.getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        requireOpen();
+        connection.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        requireOpen();
+        connection.rollback();
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        requireOpen();
+        return connection.getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        requireOpen();
+        changed(SessionState.Property.READ_ONLY);
+        connection.setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        requireOpen();
+        return connection.isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        requireOpen();
+        changed(SessionState.Property.CATALOG);
+        connection.setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        requireOpen();
+        return connection.getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        requireOpen();
+        changed(SessionState.Property.TRANSACTION_ISOLATION);
+        connection.setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        requireOpen();
+        return connection.getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        requireOpen();
+        return connection.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        requireOpen();
+        connection.clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireOpen();
+        return connection.createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        requireOpen();
+        return connection.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        requireOpen();
+        return connection.getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        requireOpen();
+        reusable = false;
+        connection.setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        requireOpen();
+        changed(SessionState.Property.HOLDABILITY);
+        connection.setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        requireOpen();
+        return connection.getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        requireOpen();
+        return connection.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        requireOpen();
+        return connection.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        requireOpen();
+        connection.rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        requireOpen();
+        connection.releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireOpen();
+        return connection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        requireOpen();
+        return connection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        requireOpen();
+        return connection.prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        requireOpen();
+        return connection.createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        requireOpen();
+        return connection.createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        requireOpen();
+        return connection.createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        requireOpen();
+        return connection.createSQLXML();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        if(closed.get()) {
+            throw new SQLClientInfoException("Connection is closed", null);
+        }
+        reusable = false;
+        connection.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        if(closed.get()) {
+            throw new SQLClientInfoException("Connection is closed", null);
+        }
+        reusable = false;
+        connection.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        requireOpen();
+        return connection.getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        requireOpen();
+        return connection.getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        requireOpen();
+        return connection.createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        requireOpen();
+        return connection.createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        requireOpen();
+        changed(SessionState.Property.SCHEMA);
+        connection.setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        requireOpen();
+        return connection.getSchema();
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        requireOpen();
+        reusable = false;
+        connection.setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        requireOpen();
+        return connection.getNetworkTimeout();
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * "Power of two choices": of two randomly picked servers, the one with lower cost is tried first, and of equal ones
+ * either one. Cheapest server is not always picked, so load does not pile up on it.
+ */
+class PowerOfTwoChoices {
+
+    static List<String> order(List<String> servers, ToDoubleFunction<String> cost) {
+        final List<String> remaining = new ArrayList<>(servers);
+        final List<String> ordered = new ArrayList<>(servers.size());
+        final Random random = ThreadLocalRandom.current();
+        while(remaining.size() > 1) {
+            final int first = random.nextInt(remaining.size());
+            int second = random.nextInt(remaining.size() - 1);
+            if(second >= first) {
+                second++;
+            }
+            final int chosen = cost.applyAsDouble(remaining.get(first)) <= cost.applyAsDouble(remaining.get(second)) ? first : second;
+            ordered.add(remaining.get(chosen));
+            Collections.swap(remaining, chosen, remaining.size() - 1);
+            remaining.remove(remaining.size() - 1);
+        }
+        ordered.addAll(remaining);
+        return ordered;
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Optional;
+
+enum ProbeMode {
+
+    SEQUENTIAL, PARALLEL, HEDGED;
+
+    static Optional<ProbeMode> from(String s) {
+        try {
+            return Optional.of(ProbeMode.valueOf(s.toUpperCase()));
+        } catch(IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads connections evenly over servers.
+ */
+class RandomServerSelection implements ServerSelectionStrategy {
+
+    @Override
+    public List<String> order(List<String> servers, ClusterState cluster) {
+        final List<String> randomOrderServers = new ArrayList<>(servers);
+        Collections.shuffle(randomOrderServers, ThreadLocalRandom.current());
+        return randomOrderServers;
+    }
+}
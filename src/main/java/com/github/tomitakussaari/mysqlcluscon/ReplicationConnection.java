@@ -0,0 +1,479 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Connection that is routed by read only mode: read only work goes to replica, everything else to master.
+ * Replica connection is opened when connection is first set read only. When no replica is good enough,
+ * read only work goes to master.
+ * <p>
+ * Session settings, like auto commit and transaction isolation, are applied to both connections.
+ * Read only mode can not be changed in middle of transaction.
+ * <p>
+ * Use {@link #unwrap(Class)} to get access to {@link #requireAtLeast(String)}.
+ */
+public class ReplicationConnection implements Connection {
+
+    private static final Logger LOGGER = Logger.getLogger(ReplicationConnection.class.getName());
+    static final String invalidTransactionStateSqlState = "25000";
+
+    private final MysclusconConnection master;
+    private final ReplicaOpener replicaOpener;
+    /**
+     * Settings applied so far, by name of setting, so that they can be applied to replica when it is opened
+     */
+    private final Map<String, SessionSetting> appliedSessionSettings = new LinkedHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private MysclusconConnection replica;
+    private MysclusconConnection current;
+    private String requiredGtidSet;
+    private boolean readOnly;
+    private boolean statementsSinceEndOfTransaction;
+
+    private ReplicationConnection(MysclusconConnection master, ReplicaOpener replicaOpener) {
+        this.master = master;
+        this.current = master;
+        this.replicaOpener = replicaOpener;
+    }
+
+    @FunctionalInterface
+    interface ReplicaOpener {
+        MysclusconConnection open() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SessionSetting {
+        void applyTo(Connection connection) throws SQLException;
+    }
+
+    static Connection of(MysclusconConnection master, ReplicaOpener replicaOpener) {
+        return new ReplicationConnection(master, replicaOpener);
+    }
+
+    /**
+     * Makes sure that read only work of this connection sees given transactions, for example writes made earlier.
+     * Master has always executed its own writes, so only replica is required to have executed them: replica that is
+     * already open is checked right away, and replica that is opened later is checked when it is opened. When replica
+     * opened later has not executed them, read only work goes to master.
+     *
+     * @param gtidSet MySQL GTID set, or MariaDB GTID position
+     * @throws SQLTransientConnectionException when open replica did not execute given transactions in time
+     */
+    public void requireAtLeast(String gtidSet) throws SQLException {
+        requireOpen();
+        if(replica != null && !isClosed(replica)) {
+            replica.requireAtLeast(gtidSet);
+        }
+        requiredGtidSet = gtidSet;
+    }
+
+    private void requireOpen() throws SQLException {
+        if(closed.get()) {
+            throw new SQLException("Connection is closed");
+        }
+    }
+
+    /**
+     * Connection for statement, which is counted as part of transaction when auto commit is off
+     */
+    private MysclusconConnection forStatement() throws SQLException {
+        requireOpen();
+        statementsSinceEndOfTransaction = true;
+        return current;
+    }
+
+    private MysclusconConnection currentConnection() throws SQLException {
+        requireOpen();
+        return current;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        requireOpen();
+        if(readOnly == this.readOnly) {
+            return;
+        }
+        if(statementsSinceEndOfTransaction && !current.getAutoCommit()) {
+            throw new SQLException("Read only mode can not be changed in middle of transaction", invalidTransactionStateSqlState);
+        }
+        current = readOnly ? replicaOrMaster() : master;
+        current.setReadOnly(readOnly);
+        this.readOnly = readOnly;
+        statementsSinceEndOfTransaction = false;
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        requireOpen();
+        return readOnly;
+    }
+
+    private MysclusconConnection replicaOrMaster() {
+        if(replica != null && !isClosed(replica)) {
+            return replica;
+        }
+        try {
+            replica = replicaOpener.open();
+            for(SessionSetting setting : appliedSessionSettings.values()) {
+                setting.applyTo(replica);
+            }
+            if(requiredGtidSet != null) {
+                replica.requireAtLeast(requiredGtidSet);
+            }
+            return replica;
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.warning(() -> "No replica available for read only work, using master " + master.getServer() + ": " + e.getMessage());
+            closeQuietly(replica);
+            replica = null;
+            return master;
+        }
+    }
+
+    private void applySessionSetting(String name, SessionSetting setting) throws SQLException {
+        requireOpen();
+        setting.applyTo(master);
+        if(replica != null) {
+            setting.applyTo(replica);
+        }
+        appliedSessionSettings.put(name, setting);
+    }
+
+    /**
+     * Valid only when both master and replica, if it is open, are valid
+     */
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        if(closed.get()) {
+            return false;
+        }
+        return master.isValid(timeout) && (replica == null || isClosed(replica) || replica.isValid(timeout));
+    }
+
+    /**
+     * Unwraps to this connection itself, or else to connection that is currently used
+     */
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return currentConnection().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || currentConnection().isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if(closed.compareAndSet(false, true)) {
+            try {
+                master.close();
+            } finally {
+                closeQuietly(replica);
+            }
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        if(closed.compareAndSet(false, true)) {
+            try {
+                master.abort(executor);
+            } finally {
+                if(replica != null) {
+                    replica.abort(executor);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed.get() || current.isClosed();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationConnection[" + current + "]";
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return forStatement().createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return forStatement().prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return forStatement().prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return currentConnection().nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        applySessionSetting("autoCommit", connection -> connection.setAutoCommit(autoCommit));
+        statementsSinceEndOfTransaction = false;
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        return currentConnection().getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        currentConnection().commit();
+        statementsSinceEndOfTransaction = false;
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        currentConnection().rollback();
+        statementsSinceEndOfTransaction = false;
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return currentConnection().getMetaData();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        applySessionSetting("catalog", connection -> connection.setCatalog(catalog));
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return currentConnection().getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        applySessionSetting("transactionIsolation", connection -> connection.setTransactionIsolation(level));
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        return currentConnection().getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return currentConnection().getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        currentConnection().clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return forStatement().createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return forStatement().prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return forStatement().prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return currentConnection().getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        applySessionSetting("typeMap", connection -> connection.setTypeMap(map));
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        applySessionSetting("holdability", connection -> connection.setHoldability(holdability));
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return currentConnection().getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return currentConnection().setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return currentConnection().setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        currentConnection().rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        currentConnection().releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return forStatement().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return forStatement().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return forStatement().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return forStatement().prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return forStatement().prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return forStatement().prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return currentConnection().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return currentConnection().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return currentConnection().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return currentConnection().createSQLXML();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        if(closed.get()) {
+            throw new SQLClientInfoException("Connection is closed", null);
+        }
+        current.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        if(closed.get()) {
+            throw new SQLClientInfoException("Connection is closed", null);
+        }
+        current.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return currentConnection().getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return currentConnection().getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return currentConnection().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return currentConnection().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        applySessionSetting("schema", connection -> connection.setSchema(schema));
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return currentConnection().getSchema();
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        applySessionSetting("networkTimeout", connection -> connection.setNetworkTimeout(executor, milliseconds));
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return currentConnection().getNetworkTimeout();
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if(connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.fine(() -> "Error while closing replica connection " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest known replication lag of each server: seconds behind master of replicas, or length of receive queue of Galera nodes.
+ * Servers of one cluster are all of same kind, so lags of its servers are comparable.
+ */
+class ReplicationLags {
+
+    private static final long unknownLag = Long.MAX_VALUE;
+
+    private final Map<String, Long> lags = new ConcurrentHashMap<>();
+
+    /**
+     * Results of DEAD servers are ignored, as those are kept out of use by blacklist anyway.
+     */
+    void record(String server, CheckResult checkResult) {
+        if(checkResult.getStatus() != ConnectionStatus.DEAD) {
+            lags.put(server, lagOf(checkResult));
+        }
+    }
+
+    OptionalLong lag(String server) {
+        final Long lag = lags.get(server);
+        return lag == null || lag == unknownLag ? OptionalLong.empty() : OptionalLong.of(lag);
+    }
+
+    /**
+     * @return lag of server, zero for servers that have not been checked yet so that they get checked,
+     * and {@link Long#MAX_VALUE} for servers whose lag could not be found out, like stopped replicas
+     */
+    long lagForOrdering(String server) {
+        return lags.getOrDefault(server, 0L);
+    }
+
+    private static long lagOf(CheckResult checkResult) {
+        if(checkResult.getReplicationLagInSeconds().isPresent()) {
+            return checkResult.getReplicationLagInSeconds().getAsLong();
+        }
+        return checkResult.getReceiveQueueLength().orElse(unknownLag);
+    }
+}
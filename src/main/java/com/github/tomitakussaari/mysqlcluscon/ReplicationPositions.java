@@ -0,0 +1,31 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Latest known GTID set executed by each replica. As replicas only move forward, server that was seen
+ * to have executed some transactions has executed them also now, even if its position was seen long ago.
+ */
+class ReplicationPositions {
+
+    private final Map<String, GtidSet> executedGtidSets = new ConcurrentHashMap<>();
+
+    void record(String server, CheckResult checkResult) {
+        checkResult.getExecutedGtidSet().ifPresent(gtidSet -> executedGtidSets.put(server, gtidSet));
+    }
+
+    boolean hasExecuted(String server, GtidSet gtidSet) {
+        final GtidSet executed = executedGtidSets.get(server);
+        return executed != null && executed.contains(gtidSet);
+    }
+
+    /**
+     * @return those of given servers that are known to have executed given GTID set
+     */
+    List<String> serversThatHaveExecuted(List<String> servers, GtidSet gtidSet) {
+        return servers.stream().filter(server -> hasExecuted(server, gtidSet)).collect(Collectors.toList());
+    }
+}
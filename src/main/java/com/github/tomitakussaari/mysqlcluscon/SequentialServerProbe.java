@@ -0,0 +1,33 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Tries servers one at a time, in calling thread.
+ */
+@RequiredArgsConstructor
+class SequentialServerProbe implements ServerProbe {
+
+    private final Iterator<String> servers;
+    private final Function<String, Optional<ConnectionInfo>> connector;
+
+    @Override
+    public boolean hasNext() {
+        return servers.hasNext();
+    }
+
+    @Override
+    public Attempt next() {
+        String server = servers.next();
+        return new Attempt(server, connector.apply(server));
+    }
+
+    @Override
+    public void close() {
+        //nothing is left open
+    }
+}
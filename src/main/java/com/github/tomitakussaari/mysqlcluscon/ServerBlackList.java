@@ -1,47 +1,168 @@
 package com.github.tomitakussaari.mysqlcluscon;
 
-import lombok.RequiredArgsConstructor;
-
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Supplier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
+/**
+ * Keeps servers that failed out of use for a while. Each failure of server doubles its blacklist time,
+ * up to max blacklist time, so that flapping servers are not tried on every connect. Server that has stayed
+ * out of blacklist for longer than max blacklist time starts again from initial blacklist time.
+ * <p>
+ * Checking blacklist does not allocate or lock, so it is cheap to do on every connect.
+ * Server is counted as removed from blacklist when it is first seen to be out of it.
+ */
 class ServerBlackList {
 
-    private static final long defaultBlackListTimeInMs = 2 * 60 * 1000;
-    private final Map<String, Long> serversAndBlackListTimes = new ConcurrentHashMap<>();
+    static final long defaultInitialBlackListTimeInMs = 5 * 1000;
+    static final long defaultMaxBlackListTimeInMs = 2 * 60 * 1000;
+    private static final double defaultJitter = 0.2;
+    private static final int maxBackoffShift = 30;
+
+    private final Map<String, ServerState> serverStates = new ConcurrentHashMap<>();
 
-    private final Supplier<Long> nowSupplier;
-    private final long blackListTimeInMs;
+    private final LongSupplier nowSupplier;
+    private final long initialBlackListTimeInMs;
+    private final long maxBlackListTimeInMs;
+    private final double jitter;
+    private final DriverMetrics metrics;
 
     ServerBlackList() {
-        this(System::currentTimeMillis, defaultBlackListTimeInMs);
+        this(System::currentTimeMillis, defaultInitialBlackListTimeInMs, defaultMaxBlackListTimeInMs, defaultJitter);
+    }
+
+    /**
+     * Blacklist without backoff, every server is blacklisted for same time.
+     */
+    ServerBlackList(LongSupplier nowSupplier, long blackListTimeInMs) {
+        this(nowSupplier, blackListTimeInMs, blackListTimeInMs, 0);
+    }
+
+    /**
+     * @param jitter how much, as fraction of blacklist time, blacklist time is randomly extended,
+     *               so that servers failing at the same time do not all come back at the same time
+     */
+    ServerBlackList(LongSupplier nowSupplier, long initialBlackListTimeInMs, long maxBlackListTimeInMs, double jitter) {
+        this(nowSupplier, initialBlackListTimeInMs, maxBlackListTimeInMs, jitter, DriverMetrics.shared());
+    }
+
+    ServerBlackList(LongSupplier nowSupplier, long initialBlackListTimeInMs, long maxBlackListTimeInMs, double jitter, DriverMetrics metrics) {
+        this.nowSupplier = nowSupplier;
+        this.initialBlackListTimeInMs = initialBlackListTimeInMs;
+        this.maxBlackListTimeInMs = maxBlackListTimeInMs;
+        this.jitter = jitter;
+        this.metrics = metrics;
+    }
+
+    private static class ServerState {
+        private static final AtomicLongFieldUpdater<ServerState> blackListedUntilUpdater =
+                AtomicLongFieldUpdater.newUpdater(ServerState.class, "blackListedUntil");
+        private static final AtomicLongFieldUpdater<ServerState> expiryCountedUpdater =
+                AtomicLongFieldUpdater.newUpdater(ServerState.class, "expiryCounted");
+
+        private volatile long blackListedUntil;
+        /**
+         * End of latest blacklisting that has been counted as removal
+         */
+        private volatile long expiryCounted;
+        private volatile int failures;
     }
 
     void blackList(String server) {
-        serversAndBlackListTimes.put(server, nowSupplier.get());
+        blackList(server, initialBlackListTimeInMs, maxBlackListTimeInMs);
     }
 
-    List<String> withoutBlackListed(List<String> allServers) {
-        purgeOldEntries();
-        return allServers.stream()
-                .filter(server -> !serversAndBlackListTimes.containsKey(server))
-                .collect(Collectors.toList());
+    void blackList(String server, long initialBlackListTimeInMs, long maxBlackListTimeInMs) {
+        final ServerState state = serverState(server);
+        final long now = nowSupplier.getAsLong();
+        final long blackListedUntil = state.blackListedUntil;
+        if(blackListedUntil > now) {
+            return;
+        }
+        final int failures = now - blackListedUntil > maxBlackListTimeInMs ? 1 : state.failures + 1;
+        final long blackListTime = withJitter(backoff(failures, initialBlackListTimeInMs, maxBlackListTimeInMs));
+        if(ServerState.blackListedUntilUpdater.compareAndSet(state, blackListedUntil, now + blackListTime)) {
+            state.failures = failures;
+            metrics.blackListed();
+            DriverEvents.get().blackListed(server, blackListTime, failures);
+        }
     }
 
-    private void purgeOldEntries() {
-        Set<Map.Entry<String, Long>> blackListEntries = serversAndBlackListTimes.entrySet();
-        blackListEntries.stream()
-                .filter(entry -> entry.getValue() + blackListTimeInMs < nowSupplier.get())
-                .forEach(blackListEntries::remove);
+    /**
+     * @return given list itself, when none of its servers are blacklisted
+     */
+    List<String> withoutBlackListed(List<String> allServers) {
+        final long now = nowSupplier.getAsLong();
+        final int serverCount = allServers.size();
+        int firstBlackListed = 0;
+        while(firstBlackListed < serverCount && !isBlackListed(allServers.get(firstBlackListed), now)) {
+            firstBlackListed++;
+        }
+        if(firstBlackListed == serverCount) {
+            return allServers;
+        }
+        final List<String> servers = new ArrayList<>(allServers.subList(0, firstBlackListed));
+        for(int i = firstBlackListed + 1; i < serverCount; i++) {
+            final String server = allServers.get(i);
+            if(!isBlackListed(server, now)) {
+                servers.add(server);
+            }
+        }
+        return servers;
     }
 
     Set<String> blackListed() {
-        purgeOldEntries();
-        return serversAndBlackListTimes.keySet();
+        final long now = nowSupplier.getAsLong();
+        return serverStates.keySet().stream()
+                .filter(server -> isBlackListed(server, now))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return time when blacklisting of server ends or ended, zero if server has never been blacklisted
+     */
+    long blackListedUntil(String server) {
+        final ServerState state = serverStates.get(server);
+        return state != null ? state.blackListedUntil : 0;
+    }
+
+    private boolean isBlackListed(String server, long now) {
+        final ServerState state = serverStates.get(server);
+        if(state == null) {
+            return false;
+        }
+        final long blackListedUntil = state.blackListedUntil;
+        if(blackListedUntil > now) {
+            return true;
+        }
+        final long expiryCounted = state.expiryCounted;
+        if(expiryCounted != blackListedUntil && ServerState.expiryCountedUpdater.compareAndSet(state, expiryCounted, blackListedUntil)) {
+            metrics.blackListExpired();
+        }
+        return false;
+    }
+
+    private ServerState serverState(String server) {
+        final ServerState state = serverStates.get(server);
+        return state != null ? state : serverStates.computeIfAbsent(server, s -> new ServerState());
+    }
+
+    private static long backoff(int failures, long initialBlackListTimeInMs, long maxBlackListTimeInMs) {
+        final int shift = Math.min(failures - 1, maxBackoffShift);
+        final long backoff = initialBlackListTimeInMs << shift;
+        return backoff >> shift != initialBlackListTimeInMs ? maxBlackListTimeInMs : Math.min(backoff, maxBlackListTimeInMs);
+    }
+
+    private long withJitter(long blackListTime) {
+        if(jitter <= 0) {
+            return blackListTime;
+        }
+        return blackListTime + (long) (blackListTime * jitter * ThreadLocalRandom.current().nextDouble());
     }
 }
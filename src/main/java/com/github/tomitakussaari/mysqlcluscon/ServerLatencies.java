@@ -0,0 +1,54 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted moving average of time it takes to open connection to each server and to check its status.
+ * Recent samples weigh more, so that server that has become slow is noticed quickly.
+ */
+class ServerLatencies {
+
+    private static final double defaultWeightOfNewSample = 0.3;
+
+    private final Map<String, AtomicLong> averageLatencies = new ConcurrentHashMap<>();
+    private final double weightOfNewSample;
+
+    ServerLatencies() {
+        this(defaultWeightOfNewSample);
+    }
+
+    ServerLatencies(double weightOfNewSample) {
+        this.weightOfNewSample = weightOfNewSample;
+    }
+
+    void record(String server, long latencyInNanos) {
+        final AtomicLong average = averageOf(server);
+        long previousBits;
+        double newAverage;
+        do {
+            previousBits = average.get();
+            final double previous = Double.longBitsToDouble(previousBits);
+            newAverage = Double.isNaN(previous) ? latencyInNanos : previous + weightOfNewSample * (latencyInNanos - previous);
+        } while(!average.compareAndSet(previousBits, Double.doubleToRawLongBits(newAverage)));
+    }
+
+    /**
+     * @return empty, when nothing has been recorded for server
+     */
+    OptionalDouble averageInNanos(String server) {
+        final AtomicLong average = averageLatencies.get(server);
+        if(average == null) {
+            return OptionalDouble.empty();
+        }
+        final double value = Double.longBitsToDouble(average.get());
+        return Double.isNaN(value) ? OptionalDouble.empty() : OptionalDouble.of(value);
+    }
+
+    private AtomicLong averageOf(String server) {
+        final AtomicLong average = averageLatencies.get(server);
+        return average != null ? average : averageLatencies.computeIfAbsent(server, s -> new AtomicLong(Double.doubleToRawLongBits(Double.NaN)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Connections of data source to one server. When server is no longer usable, its idle connections are closed
+ * right away, and connections in use are closed when they are returned.
+ * <p>
+ * Connection is closed when it gets older than max lifetime, and idle connections over minimum amount are closed
+ * when they have been idle longer than idle timeout. Connection that has been idle for a while is validated before it is borrowed.
+ */
+class ServerPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ServerPool.class.getName());
+    static final int validationTimeoutInSeconds = 5;
+
+    final String server;
+    /**
+     * Shared by all pools of data source, so that data source can keep total amount of connections under its limit
+     */
+    private final AtomicInteger totalConnections;
+    private final long idleTimeoutInMs;
+    private final long maxLifetimeInMs;
+    private final long validateAfterIdleInMs;
+    private final LongSupplier nowSupplier;
+    private final Deque<Entry> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile boolean usable = true;
+
+    ServerPool(String server, AtomicInteger totalConnections, long idleTimeoutInMs, long maxLifetimeInMs, long validateAfterIdleInMs) {
+        this(server, totalConnections, idleTimeoutInMs, maxLifetimeInMs, validateAfterIdleInMs, System::currentTimeMillis);
+    }
+
+    ServerPool(String server, AtomicInteger totalConnections, long idleTimeoutInMs, long maxLifetimeInMs, long validateAfterIdleInMs,
+               LongSupplier nowSupplier) {
+        this.server = server;
+        this.totalConnections = totalConnections;
+        this.idleTimeoutInMs = idleTimeoutInMs;
+        this.maxLifetimeInMs = maxLifetimeInMs;
+        this.validateAfterIdleInMs = validateAfterIdleInMs;
+        this.nowSupplier = nowSupplier;
+    }
+
+    /**
+     * Connection of pool, with session state that it had when it was opened
+     */
+    static class Entry {
+        final MysclusconConnection connection;
+        final SessionState initialState;
+        private final long createdAt;
+        private volatile long idleSince;
+
+        private Entry(MysclusconConnection connection, SessionState initialState, long createdAt) {
+            this.connection = connection;
+            this.initialState = initialState;
+            this.createdAt = createdAt;
+            this.idleSince = createdAt;
+        }
+    }
+
+    /**
+     * Most recently returned connection is borrowed first, so that rarely needed connections are the ones left idle.
+     * Connections that are too old, or fail validation, are closed instead.
+     */
+    Optional<Entry> borrow() {
+        Entry entry;
+        while(usable && (entry = idleConnections.pollFirst()) != null) {
+            if(isAlive(entry)) {
+                return Optional.of(entry);
+            }
+            discard(entry);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Called for new connection, that already has its place reserved from total connections.
+     * Connection is closed if its session state can not be read.
+     */
+    Entry added(MysclusconConnection connection) throws SQLException {
+        final SessionState initialState;
+        try {
+            initialState = SessionState.of(connection);
+        } catch (SQLException e) {
+            close(connection);
+            throw e;
+        }
+        size.incrementAndGet();
+        return new Entry(connection, initialState, nowSupplier.getAsLong());
+    }
+
+    void returned(Entry entry) {
+        entry.idleSince = nowSupplier.getAsLong();
+        if(usable && !isTooOld(entry, entry.idleSince)) {
+            idleConnections.offerFirst(entry);
+        } else {
+            discard(entry);
+        }
+    }
+
+    void discard(Entry entry) {
+        size.decrementAndGet();
+        totalConnections.decrementAndGet();
+        close(entry.connection);
+    }
+
+    /**
+     * @return false if there was no idle connection to close
+     */
+    boolean discardIdle() {
+        final Entry entry = idleConnections.pollLast();
+        if(entry != null) {
+            discard(entry);
+        }
+        return entry != null;
+    }
+
+    /**
+     * Closes idle connections that are older than max lifetime, and least recently used connections that have
+     * been idle longer than idle timeout, as long as more than given amount of idle connections are left.
+     */
+    void discardExpired(int minIdle) {
+        final long now = nowSupplier.getAsLong();
+        for(Iterator<Entry> leastRecentlyUsedFirst = idleConnections.descendingIterator(); leastRecentlyUsedFirst.hasNext(); ) {
+            final Entry entry = leastRecentlyUsedFirst.next();
+            final boolean idleTooLong = now - entry.idleSince >= idleTimeoutInMs && idleConnections.size() > minIdle;
+            if((idleTooLong || isTooOld(entry, now)) && idleConnections.remove(entry)) {
+                discard(entry);
+            }
+        }
+    }
+
+    void drain() {
+        usable = false;
+        while(discardIdle()) {
+            //closing all idle connections
+        }
+    }
+
+    void markUsable() {
+        usable = true;
+    }
+
+    boolean isUsable() {
+        return usable;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    int idleCount() {
+        return idleConnections.size();
+    }
+
+    /**
+     * Connection that was returned only moments ago is trusted without validation, as it was just in use
+     */
+    private boolean isAlive(Entry entry) {
+        final long now = nowSupplier.getAsLong();
+        if(isTooOld(entry, now)) {
+            return false;
+        }
+        if(now - entry.idleSince < validateAfterIdleInMs) {
+            return true;
+        }
+        try {
+            return entry.connection.isValid(validationTimeoutInSeconds);
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Error while validating connection to " + server + " " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isTooOld(Entry entry, long now) {
+        return now - entry.createdAt >= maxLifetimeInMs;
+    }
+
+    private void close(MysclusconConnection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Error while closing connection to " + server + " " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Yields connection attempts to servers of cluster, in order they complete.
+ */
+interface ServerProbe extends AutoCloseable {
+
+    boolean hasNext();
+
+    Attempt next() throws SQLException;
+
+    /**
+     * Closes connections from attempts that were not returned by {@link #next()}
+     */
+    @Override
+    void close();
+
+    @RequiredArgsConstructor
+    @Getter
+    class Attempt {
+        private final String server;
+        private final Optional<ConnectionInfo> connection;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+@Getter
+enum ServerSelection {
+
+    RANDOM(new RandomServerSelection()),
+    LATENCY(new LatencyWeightedServerSelection()),
+    LEAST_LAG(new LeastLagServerSelection()),
+    LEAST_CONNECTIONS(new LeastConnectionsServerSelection());
+
+    private final ServerSelectionStrategy strategy;
+
+    static Optional<ServerSelection> from(String s) {
+        try {
+            return Optional.of(ServerSelection.valueOf(s.toUpperCase()));
+        } catch(IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.List;
+
+/**
+ * Decides in which order servers of cluster are tried when opening new connection.
+ */
+interface ServerSelectionStrategy {
+
+    /**
+     * @param servers servers that are not blacklisted, must not be modified
+     * @return new list containing same servers, the one that should be tried first at the beginning
+     */
+    List<String> order(List<String> servers, ClusterState cluster);
+}
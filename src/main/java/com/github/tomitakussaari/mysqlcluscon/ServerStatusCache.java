@@ -0,0 +1,89 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.RequiredArgsConstructor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers latest status of each server for a while, so that status of server is not queried again
+ * for every connection to it.
+ */
+@RequiredArgsConstructor
+class ServerStatusCache {
+
+    private final Map<String, CachedStatus> serverStatuses = new ConcurrentHashMap<>();
+    private final LongSupplier nowSupplier;
+
+    ServerStatusCache() {
+        this(System::currentTimeMillis);
+    }
+
+    @RequiredArgsConstructor
+    private static class CachedStatus {
+        private final ConnectionStatus status;
+        private final long checkedAt;
+    }
+
+    /**
+     * DEAD status is never cached, as it is more likely to be about single broken connection than about whole server.
+     */
+    ConnectionStatus status(String server, long timeToLiveInMs, Supplier<ConnectionStatus> statusLoader) {
+        return cachedStatus(server, timeToLiveInMs).orElseGet(() -> load(server, statusLoader));
+    }
+
+    /**
+     * @return status cached within given time, without loading it
+     */
+    Optional<ConnectionStatus> cachedStatus(String server, long timeToLiveInMs) {
+        final CachedStatus cached = serverStatuses.get(server);
+        if(cached != null && nowSupplier.getAsLong() - cached.checkedAt < timeToLiveInMs) {
+            return Optional.of(cached.status);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checker for one connection. Cached status of server is used only for open connection, that has itself been checked,
+     * or opened, within time to live, so that connection whose socket is broken does not pass validation for long
+     * just because other connections to same server are fine.
+     */
+    ConnectionChecker cachingChecker(String server, long timeToLiveInMs, ConnectionChecker connectionChecker) {
+        final AtomicLong connectionCheckedAt = new AtomicLong(nowSupplier.getAsLong());
+        return (conn, timeoutInSeconds) -> {
+            if(nowSupplier.getAsLong() - connectionCheckedAt.get() < timeToLiveInMs && !isClosed(conn)) {
+                final Optional<ConnectionStatus> cached = cachedStatus(server, timeToLiveInMs);
+                if(cached.isPresent()) {
+                    return cached.get();
+                }
+            }
+            connectionCheckedAt.set(nowSupplier.getAsLong());
+            return load(server, () -> connectionChecker.connectionStatus(conn, timeoutInSeconds));
+        };
+    }
+
+    private ConnectionStatus load(String server, Supplier<ConnectionStatus> statusLoader) {
+        final long now = nowSupplier.getAsLong();
+        final ConnectionStatus status = statusLoader.get();
+        if(status == ConnectionStatus.DEAD) {
+            serverStatuses.remove(server);
+        } else {
+            serverStatuses.put(server, new CachedStatus(status, now));
+        }
+        return status;
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
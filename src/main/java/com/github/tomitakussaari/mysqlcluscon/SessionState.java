@@ -0,0 +1,78 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Session settings of pooled connection as they were when connection was opened, so that settings changed
+ * by borrower can be restored before connection is given to next borrower.
+ */
+class SessionState {
+
+    /**
+     * Settings that borrower can change via handle of pooled connection. Auto commit is not listed,
+     * as it is always compared to its initial value when transaction left open is rolled back.
+     */
+    enum Property {
+        READ_ONLY, TRANSACTION_ISOLATION, CATALOG, SCHEMA, HOLDABILITY
+    }
+
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private final int transactionIsolation;
+    private final String catalog;
+    private final String schema;
+    private final int holdability;
+
+    private SessionState(boolean autoCommit, boolean readOnly, int transactionIsolation, String catalog, String schema, int holdability) {
+        this.autoCommit = autoCommit;
+        this.readOnly = readOnly;
+        this.transactionIsolation = transactionIsolation;
+        this.catalog = catalog;
+        this.schema = schema;
+        this.holdability = holdability;
+    }
+
+    static SessionState of(Connection connection) throws SQLException {
+        return new SessionState(connection.getAutoCommit(), connection.isReadOnly(), connection.getTransactionIsolation(),
+                connection.getCatalog(), connection.getSchema(), connection.getHoldability());
+    }
+
+    /**
+     * Rolls back transaction left open by borrower, and restores auto commit and given changed settings
+     *
+     * @throws SQLException when some setting could not be restored, and connection must not be used again
+     */
+    void restore(Connection connection, Set<Property> changed) throws SQLException {
+        final boolean currentAutoCommit = connection.getAutoCommit();
+        if(!currentAutoCommit) {
+            connection.rollback();
+        }
+        if(currentAutoCommit != autoCommit) {
+            connection.setAutoCommit(autoCommit);
+        }
+        if(changed.contains(Property.READ_ONLY)) {
+            connection.setReadOnly(readOnly);
+        }
+        if(changed.contains(Property.TRANSACTION_ISOLATION)) {
+            connection.setTransactionIsolation(transactionIsolation);
+        }
+        if(changed.contains(Property.CATALOG)) {
+            connection.setCatalog(requireKnown(catalog, Property.CATALOG));
+        }
+        if(changed.contains(Property.SCHEMA)) {
+            connection.setSchema(requireKnown(schema, Property.SCHEMA));
+        }
+        if(changed.contains(Property.HOLDABILITY)) {
+            connection.setHoldability(holdability);
+        }
+    }
+
+    private static String requireKnown(String value, Property property) throws SQLException {
+        if(value == null) {
+            throw new SQLException("Initial " + property + " of connection is not known, and can not be restored");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Gives servers that have just recovered only part of the connections they would otherwise get, so that cold server
+ * is not swamped right after it comes back. Share of server grows linearly from {@link #initialWeight} to full
+ * during slow start window. Servers that are not given their turn are moved to the end, so they are still used
+ * when other servers are not available.
+ * <p>
+ * Works on top of any other strategy.
+ */
+class SlowStartServerSelection implements ServerSelectionStrategy {
+
+    static final double initialWeight = 0.1;
+
+    private final ServerSelectionStrategy strategy;
+    private final long slowStartWindowInMs;
+    private final LongSupplier nowSupplier;
+    private final DoubleSupplier randomSupplier;
+
+    SlowStartServerSelection(ServerSelectionStrategy strategy, long slowStartWindowInMs) {
+        this(strategy, slowStartWindowInMs, System::currentTimeMillis, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    SlowStartServerSelection(ServerSelectionStrategy strategy, long slowStartWindowInMs, LongSupplier nowSupplier, DoubleSupplier randomSupplier) {
+        this.strategy = strategy;
+        this.slowStartWindowInMs = slowStartWindowInMs;
+        this.nowSupplier = nowSupplier;
+        this.randomSupplier = randomSupplier;
+    }
+
+    @Override
+    public List<String> order(List<String> servers, ClusterState cluster) {
+        final List<String> ordered = strategy.order(servers, cluster);
+        final long now = nowSupplier.getAsLong();
+        List<String> skipped = null;
+        for(int i = 0; i < ordered.size(); i++) {
+            final String server = ordered.get(i);
+            final double weight = weight(now - cluster.recoveredAt(server));
+            if(weight < 1 && randomSupplier.getAsDouble() >= weight) {
+                if(skipped == null) {
+                    skipped = new ArrayList<>();
+                }
+                skipped.add(server);
+                ordered.remove(i--);
+            }
+        }
+        if(skipped != null) {
+            ordered.addAll(skipped);
+        }
+        return ordered;
+    }
+
+    private double weight(long timeSinceRecoveryInMs) {
+        if(timeSinceRecoveryInMs < 0 || timeSinceRecoveryInMs >= slowStartWindowInMs) {
+            return 1;
+        }
+        return initialWeight + (1 - initialWeight) * timeSinceRecoveryInMs / slowStartWindowInMs;
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import lombok.RequiredArgsConstructor;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * Records how long status queries of checker take, and emits them as flight recorder events.
+ * Created for each server, so that events tell which server was checked.
+ */
+@RequiredArgsConstructor
+class TimedConnectionChecker implements ConnectionChecker {
+
+    private final String name;
+    private final String server;
+    private final ConnectionChecker checker;
+    private final LatencyHistogram latencies;
+
+    @Override
+    public ConnectionStatus connectionStatus(Connection conn, int timeoutInSeconds) {
+        final Object event = DriverEvents.get().beginStatusCheck();
+        final long start = System.nanoTime();
+        final ConnectionStatus status = checker.connectionStatus(conn, timeoutInSeconds);
+        latencies.record(System.nanoTime() - start);
+        DriverEvents.get().statusChecked(event, name, server, status, -1);
+        return status;
+    }
+
+    @Override
+    public CheckResult check(Connection conn, int timeoutInSeconds) {
+        final Object event = DriverEvents.get().beginStatusCheck();
+        final long start = System.nanoTime();
+        return checked(event, start, checker.check(conn, timeoutInSeconds));
+    }
+
+    @Override
+    public CheckResult check(Statement statement, int timeoutInSeconds) {
+        final Object event = DriverEvents.get().beginStatusCheck();
+        final long start = System.nanoTime();
+        return checked(event, start, checker.check(statement, timeoutInSeconds));
+    }
+
+    private CheckResult checked(Object event, long start, CheckResult result) {
+        latencies.record(System.nanoTime() - start);
+        DriverEvents.get().statusChecked(event, name, server, result.getStatus(), result.getReplicationLagInSeconds().orElse(-1));
+        return result;
+    }
+}
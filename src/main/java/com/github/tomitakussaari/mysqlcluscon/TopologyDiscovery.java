@@ -0,0 +1,17 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Finds out members of cluster from cluster itself, so that servers can be added to cluster without changing jdbc url.
+ */
+@FunctionalInterface
+public interface TopologyDiscovery {
+
+    /**
+     * @return servers as host:port, empty if given server does not know members of its cluster
+     */
+    List<String> discoverServers(final Connection conn, final int timeoutInSeconds) throws SQLException;
+}
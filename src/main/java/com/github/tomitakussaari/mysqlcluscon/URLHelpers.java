@@ -1,10 +1,11 @@
 package com.github.tomitakussaari.mysqlcluscon;
 
-import lombok.RequiredArgsConstructor;
+import lombok.EqualsAndHashCode;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -15,13 +16,19 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
 
 class URLHelpers {
 
     private static final Pattern urlParsePattern = Pattern.compile("(.*)://(.*)/(.*)?");
 
 
-    @RequiredArgsConstructor
+    /**
+     * Immutable, so that it can be shared between threads. Connect urls of servers are rendered once, when created.
+     */
+    @EqualsAndHashCode(of = {"protocol", "servers", "database", "queryParameters", "connectionType"})
     static class URLInfo {
 
         final String protocol;
@@ -29,14 +36,69 @@ class URLHelpers {
         final String database;
         final Map<String, List<String>> queryParameters;
         final MysclusconDriver.ConnectionType connectionType;
+        private final String queryString;
+        private final Map<String, String> connectUrls;
+
+        URLInfo(String protocol, List<String> servers, String database, Map<String, List<String>> queryParameters,
+                MysclusconDriver.ConnectionType connectionType) {
+            this.protocol = protocol;
+            this.servers = unmodifiableList(new ArrayList<>(servers));
+            this.database = database;
+            this.queryParameters = immutableCopyOf(queryParameters);
+            this.connectionType = connectionType;
+            this.queryString = toQueryParametersString(this.queryParameters);
+            this.connectUrls = unmodifiableMap(this.servers.stream().distinct().collect(Collectors.toMap(server -> server, this::renderJdbcConnectUrl)));
+        }
 
         String asJdbcConnectUrl(String server) {
-            return connectionType.getDriverPrefix() + "://" + server + "/" + database + toQueryParametersString(queryParameters);
+            final String connectUrl = connectUrls.get(server);
+            return connectUrl != null ? connectUrl : renderJdbcConnectUrl(server);
+        }
+
+        /**
+         * @return this, or copy with given parameter added if it was not already present
+         */
+        URLInfo withDefaultQueryParameter(String parameter, String value) {
+            if(queryParameters.containsKey(parameter)) {
+                return this;
+            }
+            final Map<String, List<String>> parameters = new LinkedHashMap<>(queryParameters);
+            parameters.put(parameter, singletonList(value));
+            return new URLInfo(protocol, servers, database, parameters, connectionType);
+        }
+
+        /**
+         * @return copy pointing to given servers, using given connection type
+         */
+        URLInfo withServers(List<String> servers, MysclusconDriver.ConnectionType connectionType) {
+            return new URLInfo(connectionType.getUrlPrefixes().get(0), servers, database, queryParameters, connectionType);
+        }
+
+        /**
+         * @return this, or copy without given parameter if it was present
+         */
+        URLInfo withoutQueryParameter(String parameter) {
+            if(!queryParameters.containsKey(parameter)) {
+                return this;
+            }
+            final Map<String, List<String>> parameters = new LinkedHashMap<>(queryParameters);
+            parameters.remove(parameter);
+            return new URLInfo(protocol, servers, database, parameters, connectionType);
+        }
+
+        private String renderJdbcConnectUrl(String server) {
+            return connectionType.getDriverPrefix() + "://" + server + "/" + database + queryString;
         }
 
         @Override
         public String toString() {
-            return protocol + "://" + servers + "/" + database + toQueryParametersString(queryParameters);
+            return protocol + "://" + servers + "/" + database + queryString;
+        }
+
+        private static Map<String, List<String>> immutableCopyOf(Map<String, List<String>> queryParameters) {
+            final Map<String, List<String>> copy = new LinkedHashMap<>();
+            queryParameters.forEach((key, values) -> copy.put(key, unmodifiableList(new ArrayList<>(values))));
+            return unmodifiableMap(copy);
         }
     }
 
@@ -57,7 +119,7 @@ class URLHelpers {
             String protocol = matcher.group(1);
             String servers = matcher.group(2);
             String database = matcher.group(3).split("\\?")[0]; //remove queryparams
-            List<String> serverList = Stream.of(servers.split(",")).map(host -> host.contains(":") ? host : host + ":3306").collect(Collectors.toList());
+            List<String> serverList = parseServers(servers);
             return new URLInfo(protocol, serverList, database, getQueryParameters(jdbcUrl), MysclusconDriver.ConnectionType.fromProtocol(protocol));
 
         } else {
@@ -65,10 +127,42 @@ class URLHelpers {
         }
     }
 
+    static List<String> parseServers(String servers) {
+        return Stream.of(servers.split(",")).map(URLHelpers::withDefaultPort).collect(Collectors.toList());
+    }
+
+    static String withDefaultPort(String host) {
+        return host.contains(":") ? host : host + ":3306";
+    }
+
     static String getParameter(Map<String, List<String>> queryParameters, String parameter, String defaultValue) {
         return queryParameters.getOrDefault(parameter, emptyList()).stream().findFirst().orElse(defaultValue);
     }
 
+    static int getIntParameter(Map<String, List<String>> queryParameters, String parameter, int defaultValue) throws SQLException {
+        final long value = getLongParameter(queryParameters, parameter, defaultValue);
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidParameter(parameter, Long.toString(value), null);
+        }
+        return (int) value;
+    }
+
+    static long getLongParameter(Map<String, List<String>> queryParameters, String parameter, long defaultValue) throws SQLException {
+        final List<String> values = queryParameters.getOrDefault(parameter, emptyList());
+        if(values.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(values.get(0));
+        } catch (NumberFormatException e) {
+            throw invalidParameter(parameter, values.get(0), e);
+        }
+    }
+
+    private static SQLException invalidParameter(String parameter, String value, Exception cause) {
+        return new SQLException("Invalid value for url parameter " + parameter + ": " + value, cause);
+    }
+
     private static Map<String, List<String>> getQueryParameters(String url) throws SQLException {
         final Map<String, List<String>> queryParameters = new LinkedHashMap<>();
         final int startOfQueryParams = url.indexOf("?");
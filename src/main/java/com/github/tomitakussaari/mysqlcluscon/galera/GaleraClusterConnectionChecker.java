@@ -1,40 +1,136 @@
 package com.github.tomitakussaari.mysqlcluscon.galera;
 
+import com.github.tomitakussaari.mysqlcluscon.CheckResult;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionChecker;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionStatus;
 import com.github.tomitakussaari.mysqlcluscon.read_cluster.ReadClusterConnectionChecker;
+import lombok.RequiredArgsConstructor;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Node is OK when it is ready and synced, and its receive queue and time paused by flow control are small enough.
+ * Ready node that is donor, joining, or has too much work queued is BEHIND, so that traffic is not sent there
+ * when better nodes are available.
+ */
+@RequiredArgsConstructor
 public class GaleraClusterConnectionChecker implements ConnectionChecker {
 
     private static final Logger LOGGER = Logger.getLogger(ReadClusterConnectionChecker.class.getName());
+    static final String statusQuery = "SHOW STATUS WHERE Variable_name IN " +
+            "('wsrep_ready', 'wsrep_local_state_comment', 'wsrep_local_recv_queue', 'wsrep_flow_control_paused')";
+    private static final long defaultMaxRecvQueue = 100;
+    private static final double defaultMaxFlowControlPaused = 0.1;
+
+    private final long maxRecvQueue;
+    private final double maxFlowControlPaused;
+
+    public GaleraClusterConnectionChecker() {
+        this(defaultMaxRecvQueue, defaultMaxFlowControlPaused);
+    }
+
+    public GaleraClusterConnectionChecker(Map<String, List<String>> queryParameters) {
+        this(
+                getParameter(queryParameters, "maxRecvQueue", defaultMaxRecvQueue, Long::parseLong),
+                getParameter(queryParameters, "maxFlowControlPaused", defaultMaxFlowControlPaused, Double::parseDouble)
+        );
+    }
 
     @Override
     public ConnectionStatus connectionStatus(final Connection conn, final int queryTimeoutInSeconds) {
+        return check(conn, queryTimeoutInSeconds).getStatus();
+    }
+
+    /**
+     * Status query itself proves that connection is alive, so connection is not separately pinged.
+     * Query is bounded also by network timeout, so that node that does not answer at all is DEAD within timeout.
+     */
+    @Override
+    public CheckResult check(final Connection conn, final int queryTimeoutInSeconds) {
+        try (Statement stmt = conn.createStatement()) {
+            return check(conn, stmt, queryTimeoutInSeconds);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Error while checking connection status for: "+conn, e);
+            return CheckResult.of(ConnectionStatus.DEAD);
+        }
+    }
+
+    @Override
+    public CheckResult check(final Statement stmt, final int queryTimeoutInSeconds) {
         try {
-            if(! conn.isValid(queryTimeoutInSeconds)) {
-               return ConnectionStatus.DEAD;
-            }
-            try (Statement stmt = conn.createStatement()) {
-                stmt.setQueryTimeout(queryTimeoutInSeconds);
-                try(ResultSet rs = stmt.executeQuery("SHOW STATUS like 'wsrep_ready'")) {
-                    if(rs.next()) {
-                        if("ON".equalsIgnoreCase(rs.getString("Value"))) {
-                            return ConnectionStatus.OK;
-                        }
-                        return ConnectionStatus.STOPPED;
-                    }
+            return check(stmt.getConnection(), stmt, queryTimeoutInSeconds);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Error while checking connection status for: "+stmt, e);
+            return CheckResult.of(ConnectionStatus.DEAD);
+        }
+    }
+
+    private CheckResult check(final Connection conn, final Statement stmt, final int queryTimeoutInSeconds) {
+        try {
+            stmt.setQueryTimeout(queryTimeoutInSeconds);
+            return ConnectionChecker.withNetworkTimeout(conn, queryTimeoutInSeconds, () -> {
+                try(ResultSet rs = stmt.executeQuery(statusQuery)) {
+                    return nodeStatus(rs);
                 }
-            }
+            });
         } catch (Exception e) {
-            LOGGER.log(Level.FINE, "Error while checking connection status for: "+conn, e);
-            return ConnectionStatus.DEAD;
+            LOGGER.log(Level.FINE, "Error while checking connection status for: "+stmt, e);
+            return CheckResult.of(ConnectionStatus.DEAD);
+        }
+    }
+
+    private CheckResult nodeStatus(ResultSet rs) throws SQLException {
+        String ready = null;
+        String stateComment = null;
+        long recvQueue = 0;
+        double flowControlPaused = 0;
+        while(rs.next()) {
+            final String value = rs.getString("Value");
+            switch(rs.getString("Variable_name").toLowerCase()) {
+                case "wsrep_ready":
+                    ready = value;
+                    break;
+                case "wsrep_local_state_comment":
+                    stateComment = value;
+                    break;
+                case "wsrep_local_recv_queue":
+                    recvQueue = Long.parseLong(value);
+                    break;
+                case "wsrep_flow_control_paused":
+                    flowControlPaused = Double.parseDouble(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        if(ready == null) {
+            return CheckResult.of(ConnectionStatus.OK); //not galera, assume OK ?
+        }
+        if(!"ON".equalsIgnoreCase(ready)) {
+            return CheckResult.of(ConnectionStatus.STOPPED);
+        }
+        final boolean synced = stateComment == null || "Synced".equalsIgnoreCase(stateComment);
+        if(synced && recvQueue <= maxRecvQueue && flowControlPaused <= maxFlowControlPaused) {
+            return CheckResult.withReceiveQueue(ConnectionStatus.OK, recvQueue);
+        }
+        return CheckResult.withReceiveQueue(ConnectionStatus.BEHIND, recvQueue);
+    }
+
+    private static <T> T getParameter(Map<String, List<String>> queryParameters, String parameter, T defaultValue, Function<String, T> parser) {
+        final String value = queryParameters.getOrDefault(parameter, new ArrayList<>()).stream().findFirst().orElse(String.valueOf(defaultValue));
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for url parameter " + parameter + ": " + value, e);
         }
-        return ConnectionStatus.OK; //not galera, assume OK ?
     }
 }
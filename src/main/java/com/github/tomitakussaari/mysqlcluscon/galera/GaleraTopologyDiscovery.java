@@ -0,0 +1,43 @@
+package com.github.tomitakussaari.mysqlcluscon.galera;
+
+import com.github.tomitakussaari.mysqlcluscon.TopologyDiscovery;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Every Galera node knows client addresses of all nodes in its cluster.
+ */
+public class GaleraTopologyDiscovery implements TopologyDiscovery {
+
+    static final String incomingAddressesQuery = "SHOW STATUS LIKE 'wsrep_incoming_addresses'";
+
+    @Override
+    public List<String> discoverServers(Connection conn, int timeoutInSeconds) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setQueryTimeout(timeoutInSeconds);
+            try (ResultSet rs = stmt.executeQuery(incomingAddressesQuery)) {
+                return rs.next() ? incomingAddresses(rs.getString("Value")) : Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * Nodes that have not yet told their address are listed as empty or AUTO
+     */
+    private static List<String> incomingAddresses(String value) {
+        if(value == null) {
+            return Collections.emptyList();
+        }
+        return Stream.of(value.split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty() && !address.toUpperCase().startsWith("AUTO"))
+                .collect(Collectors.toList());
+    }
+}
@@ -1,12 +1,15 @@
 package com.github.tomitakussaari.mysqlcluscon.read_cluster;
 
+import com.github.tomitakussaari.mysqlcluscon.CheckResult;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionChecker;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionStatus;
+import com.github.tomitakussaari.mysqlcluscon.GtidSet;
 import com.github.tomitakussaari.mysqlcluscon.MysclusconDriver;
 import lombok.RequiredArgsConstructor;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -27,41 +30,108 @@ public class ReadClusterConnectionChecker implements ConnectionChecker {
 
     @Override
     public ConnectionStatus connectionStatus(Connection conn, int timeoutInSeconds) {
+        return check(conn, timeoutInSeconds).getStatus();
+    }
+
+    /**
+     * Status query itself proves that connection is alive, so connection is not separately pinged.
+     * Query is bounded also by network timeout, so that server that does not answer at all is DEAD within timeout.
+     */
+    @Override
+    public CheckResult check(Connection conn, int timeoutInSeconds) {
+        try (Statement stmt = conn.createStatement()) {
+            return check(conn, stmt, timeoutInSeconds);
+        } catch (Exception e) {
+            return dead(conn, e);
+        }
+    }
+
+    @Override
+    public CheckResult check(Statement stmt, int timeoutInSeconds) {
         try {
-            if (conn.isValid(timeoutInSeconds)) {
-                try (Statement stmt = conn.createStatement()) {
-                    stmt.setQueryTimeout(timeoutInSeconds);
-                    return slaveStatus(stmt);
-                }
-            }
+            return check(stmt.getConnection(), stmt, timeoutInSeconds);
         } catch (Exception e) {
-            if(e instanceof SQLException && "42000".equals(((SQLException) e).getSQLState())) {
-                LOGGER.log(Level.WARNING, "Access denied (?) while checking status of connection: "+conn, e);
-            } else {
-                LOGGER.log(Level.FINE, "Error while checking connection status for: "+conn, e);
-            }
+            return dead(stmt, e);
+        }
+    }
+
+    private CheckResult check(Connection conn, Statement stmt, int timeoutInSeconds) {
+        try {
+            stmt.setQueryTimeout(timeoutInSeconds);
+            return ConnectionChecker.withNetworkTimeout(conn, timeoutInSeconds, () -> slaveStatus(stmt));
+        } catch (Exception e) {
+            return dead(stmt, e);
+        }
+    }
+
+    private static CheckResult dead(Object checked, Exception e) {
+        if(e instanceof SQLException && "42000".equals(((SQLException) e).getSQLState())) {
+            LOGGER.log(Level.WARNING, "Access denied (?) while checking status of connection: "+checked, e);
+        } else {
+            LOGGER.log(Level.FINE, "Error while checking connection status for: "+checked, e);
         }
-        return ConnectionStatus.DEAD;
+        return CheckResult.of(ConnectionStatus.DEAD);
     }
 
     private static Integer getParameter(Map<String, List<String>> queryParameters, String parameter, Integer defaultValue) {
-        return Integer.valueOf(queryParameters.getOrDefault(parameter, new ArrayList<>()).stream().findFirst().orElse(defaultValue.toString()));
+        final String value = queryParameters.getOrDefault(parameter, new ArrayList<>()).stream().findFirst().orElse(defaultValue.toString());
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for url parameter " + parameter + ": " + value, e);
+        }
     }
 
-    private ConnectionStatus slaveStatus(final Statement stmt) throws SQLException {
+    private CheckResult slaveStatus(final Statement stmt) throws SQLException {
         try (ResultSet rs = stmt.executeQuery("SHOW SLAVE STATUS")) {
             if(rs.next()) {
-                final boolean running = "Yes".equals(rs.getObject("Slave_IO_Running")) && "Yes".equals(rs.getObject("Slave_SQL_Running"));
-                final boolean notTooMuchBehind = rs.getInt("Seconds_Behind_Master") <= this.maxSlaveLag;
-                if(running && notTooMuchBehind) {
-                    return ConnectionStatus.OK;
-                } else if (running) {
-                    return ConnectionStatus.BEHIND;
-                } else {
-                    return ConnectionStatus.STOPPED;
-                }
+                return withExecutedGtidSet(replicationStatus(rs), rs);
             }
-            return ConnectionStatus.OK; //Assume its master and thus working fine
+            return CheckResult.of(ConnectionStatus.OK, 0); //Assume its master and thus working fine
         }
     }
+
+    private CheckResult replicationStatus(final ResultSet rs) throws SQLException {
+        final boolean running = "Yes".equals(rs.getObject("Slave_IO_Running")) && "Yes".equals(rs.getObject("Slave_SQL_Running"));
+        final int secondsBehindMaster = rs.getInt("Seconds_Behind_Master");
+        final boolean lagKnown = !rs.wasNull();
+        final boolean notTooMuchBehind = secondsBehindMaster <= this.maxSlaveLag;
+        if(running && notTooMuchBehind) {
+            return withLag(ConnectionStatus.OK, secondsBehindMaster, lagKnown);
+        } else if (running) {
+            return withLag(ConnectionStatus.BEHIND, secondsBehindMaster, lagKnown);
+        } else {
+            return CheckResult.of(ConnectionStatus.STOPPED);
+        }
+    }
+
+    /**
+     * Executed_Gtid_Set of MySQL or Gtid_Slave_Pos of MariaDB, when replica uses GTIDs
+     */
+    private static CheckResult withExecutedGtidSet(CheckResult checkResult, ResultSet rs) throws SQLException {
+        final ResultSetMetaData metaData = rs.getMetaData();
+        for(int column = 1; metaData != null && column <= metaData.getColumnCount(); column++) {
+            final String label = metaData.getColumnLabel(column);
+            if("Executed_Gtid_Set".equalsIgnoreCase(label) || "Gtid_Slave_Pos".equalsIgnoreCase(label)) {
+                return withExecutedGtidSet(checkResult, rs.getString(column));
+            }
+        }
+        return checkResult;
+    }
+
+    private static CheckResult withExecutedGtidSet(CheckResult checkResult, String executedGtidSet) {
+        try {
+            if(executedGtidSet != null) {
+                final GtidSet gtidSet = GtidSet.parse(executedGtidSet);
+                return gtidSet.isEmpty() ? checkResult : checkResult.withExecutedGtidSet(gtidSet);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Unable to parse executed GTID set " + executedGtidSet, e);
+        }
+        return checkResult;
+    }
+
+    private static CheckResult withLag(ConnectionStatus status, int secondsBehindMaster, boolean lagKnown) {
+        return lagKnown ? CheckResult.of(status, secondsBehindMaster) : CheckResult.of(status);
+    }
 }
@@ -0,0 +1,55 @@
+package com.github.tomitakussaari.mysqlcluscon.read_cluster;
+
+import com.github.tomitakussaari.mysqlcluscon.TopologyDiscovery;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Master knows its slaves, when slaves have report_host configured. When queried server has no slaves,
+ * members of its group replication group are used instead.
+ */
+public class ReadClusterTopologyDiscovery implements TopologyDiscovery {
+
+    private static final Logger LOGGER = Logger.getLogger(ReadClusterTopologyDiscovery.class.getName());
+    static final String slaveHostsQuery = "SHOW SLAVE HOSTS";
+    static final String groupMembersQuery = "SELECT MEMBER_HOST, MEMBER_PORT FROM performance_schema.replication_group_members " +
+            "WHERE MEMBER_STATE = 'ONLINE'";
+
+    @Override
+    public List<String> discoverServers(Connection conn, int timeoutInSeconds) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setQueryTimeout(timeoutInSeconds);
+            final List<String> slaves = servers(stmt, slaveHostsQuery, "Host", "Port");
+            return slaves.isEmpty() ? groupMembers(stmt) : slaves;
+        }
+    }
+
+    private static List<String> groupMembers(Statement stmt) {
+        try {
+            return servers(stmt, groupMembersQuery, "MEMBER_HOST", "MEMBER_PORT");
+        } catch (SQLException e) {
+            LOGGER.fine(() -> "Unable to query group replication members " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static List<String> servers(Statement stmt, String query, String hostColumn, String portColumn) throws SQLException {
+        final List<String> servers = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(query)) {
+            while(rs.next()) {
+                final String host = rs.getString(hostColumn);
+                final int port = rs.getInt(portColumn);
+                if(host != null && !host.isEmpty()) {
+                    servers.add(host + ":" + (port > 0 ? port : 3306));
+                }
+            }
+        }
+        return servers;
+    }
+}
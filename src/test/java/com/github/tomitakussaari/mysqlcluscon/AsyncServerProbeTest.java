@@ -0,0 +1,112 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class AsyncServerProbeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final CountDownLatch slowServerLatch = new CountDownLatch(1);
+    private final Connection slowConnection = Mockito.mock(Connection.class);
+    private final Connection okConnection = Mockito.mock(Connection.class);
+    private final Connection laggingConnection = Mockito.mock(Connection.class);
+
+    private final Predicate<ConnectionInfo> isOk = connection -> connection.getStatus() == ConnectionStatus.OK;
+    private final Function<List<ConnectionInfo>, Optional<ConnectionInfo>> first =
+            connections -> connections.isEmpty() ? Optional.empty() : Optional.of(connections.get(0));
+
+    private final Function<String, Optional<ConnectionInfo>> connector = server -> {
+        switch(server) {
+            case "slow":
+                awaitUninterruptibly(slowServerLatch);
+                return Optional.of(new ConnectionInfo(server, slowConnection, (conn, t) -> ConnectionStatus.OK));
+            case "ok":
+                return Optional.of(new ConnectionInfo(server, okConnection, (conn, t) -> ConnectionStatus.OK));
+            case "lagging":
+                return Optional.of(new ConnectionInfo(server, laggingConnection, (conn, t) -> ConnectionStatus.BEHIND));
+            default:
+                return Optional.empty();
+        }
+    };
+
+    @After
+    public void after() {
+        slowServerLatch.countDown();
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void sequentialProbeStopsAtFirstBestPossibleConnection() throws Exception {
+        Optional<ConnectionInfo> connection = AsyncServerProbe.sequential(executor, Arrays.asList("down", "ok", "slow"), connector)
+                .start(isOk, first).get(1, TimeUnit.SECONDS);
+        assertEquals("ok", connection.get().getServer());
+        verify(slowConnection, never()).close();
+    }
+
+    @Test
+    public void fallsBackToBestOfOtherConnectionsAndClosesRest() throws Exception {
+        Function<String, Optional<ConnectionInfo>> onlyLagging = server -> connector.apply("lagging");
+        Optional<ConnectionInfo> connection = AsyncServerProbe.parallel(executor, Arrays.asList("A", "B"), 2, onlyLagging)
+                .start(isOk, first).get(1, TimeUnit.SECONDS);
+        assertEquals(ConnectionStatus.BEHIND, connection.get().getStatus());
+        verify(laggingConnection, timeout(1000)).close();
+    }
+
+    @Test
+    public void completesWithoutConnectionWhenNoServerCanBeConnected() throws Exception {
+        assertFalse(AsyncServerProbe.parallel(executor, Arrays.asList("down", "other-down"), 2, connector)
+                .start(isOk, first).get(1, TimeUnit.SECONDS).isPresent());
+        assertFalse(AsyncServerProbe.sequential(executor, Collections.emptyList(), connector)
+                .start(isOk, first).get(1, TimeUnit.SECONDS).isPresent());
+    }
+
+    @Test
+    public void hedgedProbeStartsNextServerWhenFirstOneIsSlow() throws Exception {
+        Optional<ConnectionInfo> connection = AsyncServerProbe.hedged(executor, scheduler, Arrays.asList("slow", "ok"), 2, 10, connector)
+                .start(isOk, first).get(1, TimeUnit.SECONDS);
+        assertEquals("ok", connection.get().getServer());
+        slowServerLatch.countDown();
+        verify(slowConnection, timeout(1000)).close();
+    }
+
+    @Test
+    public void hedgedProbeDoesNotStartMoreThanMaxAttempts() throws Exception {
+        CompletableFuture<Optional<ConnectionInfo>> connection = AsyncServerProbe.hedged(executor, scheduler, Arrays.asList("slow", "ok"), 1, 10, connector)
+                .start(isOk, first);
+        Thread.sleep(50);
+        assertFalse(connection.isDone());
+        slowServerLatch.countDown();
+        assertEquals("slow", connection.get(1, TimeUnit.SECONDS).get().getServer());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClusterHealthMonitorTest {
+
+    private final Connection okConn = Mockito.mock(Connection.class);
+    private final Connection behindConn = Mockito.mock(Connection.class);
+    private final Statement okStatement = Mockito.mock(Statement.class);
+    private final Statement behindStatement = Mockito.mock(Statement.class);
+    private final ConnectionChecker checker = Mockito.mock(ConnectionChecker.class);
+    private final ClusterHealthMonitor.ProbeConnectionOpener opener = Mockito.mock(ClusterHealthMonitor.ProbeConnectionOpener.class);
+    private final ClusterHealthMonitor monitor = new ClusterHealthMonitor(Arrays.asList("ok:3306", "behind:3306", "down:3306"), checker, opener);
+
+    @Test
+    public void refreshesStatusOfEachServer() throws SQLException {
+        mockServers();
+
+        monitor.refresh();
+
+        assertThat(monitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.OK));
+        assertThat(monitor.status("behind:3306")).isEqualTo(Optional.of(ConnectionStatus.BEHIND));
+        assertThat(monitor.status("down:3306")).isEqualTo(Optional.of(ConnectionStatus.DEAD));
+        assertThat(monitor.status("unknown:3306")).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void reusesProbeConnectionBetweenRefreshes() throws SQLException {
+        mockServers();
+
+        monitor.refresh();
+        monitor.refresh();
+
+        verify(opener, times(1)).open("ok:3306");
+        verify(okConn, times(1)).createStatement();
+        verify(checker, times(2)).check(okStatement, 1);
+    }
+
+    @Test
+    public void closesAndReopensProbeConnectionWhenServerIsDead() throws SQLException {
+        mockServers();
+        when(checker.check(okStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.DEAD)).thenReturn(CheckResult.of(ConnectionStatus.OK));
+
+        monitor.refresh();
+        verify(okConn).close();
+        assertThat(monitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.DEAD));
+
+        monitor.refresh();
+        verify(opener, times(2)).open("ok:3306");
+        assertThat(monitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.OK));
+    }
+
+    @Test
+    public void returnsServersWithGoodEnoughStatusBestFirst() throws SQLException {
+        mockServers();
+        monitor.refresh();
+
+        assertThat(monitor.serversWithStatusAtLeast(Arrays.asList("behind:3306", "down:3306", "ok:3306", "unknown:3306"), ConnectionStatus.STOPPED))
+                .containsExactly("ok:3306", "behind:3306");
+        assertThat(monitor.serversWithStatusAtLeast(Arrays.asList("behind:3306", "down:3306", "ok:3306"), ConnectionStatus.OK))
+                .containsExactly("ok:3306");
+    }
+
+    @Test
+    public void closesProbeConnectionsWhenStopped() throws SQLException {
+        mockServers();
+        monitor.refresh();
+
+        monitor.stop();
+
+        verify(okStatement).close();
+        verify(okConn).close();
+        verify(behindStatement).close();
+        verify(behindConn).close();
+    }
+
+    @Test
+    public void closesProbeConnectionOpenedByRefreshThatWasInProgressWhenStopped() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        ClusterHealthMonitor.ProbeConnectionOpener slowOpener = server -> {
+            opening.countDown();
+            awaitUninterruptibly(stopped);
+            return okConn;
+        };
+        ClusterHealthMonitor slowMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306"), checker, slowOpener);
+        mockServers();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService checkExecutor = Executors.newSingleThreadExecutor();
+        try {
+            slowMonitor.start(scheduler, checkExecutor, 60000);
+            assertThat(opening.await(1, TimeUnit.SECONDS)).isTrue();
+
+            slowMonitor.stop();
+            stopped.countDown();
+
+            verify(okConn, timeout(1000)).close();
+            assertThat(slowMonitor.refresh().isDone()).isTrue();
+            assertThat(slowMonitor.status("ok:3306")).isEqualTo(Optional.empty());
+        } finally {
+            scheduler.shutdownNow();
+            checkExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void tellsListenersAboutNewAndChangedStatusesOnly() throws SQLException {
+        mockServers();
+        List<String> changes = new ArrayList<>();
+        monitor.addStatusListener((server, status) -> changes.add(server + "=" + status));
+
+        monitor.refresh();
+        when(checker.check(okStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.BEHIND));
+        monitor.refresh();
+
+        assertThat(changes).containsExactly("ok:3306=OK", "behind:3306=BEHIND", "down:3306=DEAD", "ok:3306=BEHIND");
+    }
+
+    @Test
+    public void recordsLatencyOfStatusChecksToServersThatAreUp() throws SQLException {
+        ClusterState cluster = new ClusterState(new ServerBlackList());
+        ClusterHealthMonitor recordingMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306", "down:3306"), checker, opener, cluster);
+        mockServers();
+
+        recordingMonitor.refresh();
+
+        assertThat(cluster.serverLatencies.averageInNanos("ok:3306").isPresent()).isTrue();
+        assertThat(cluster.serverLatencies.averageInNanos("down:3306").isPresent()).isFalse();
+    }
+
+    @Test
+    public void recordsReplicationLagOfEachServer() throws SQLException {
+        ClusterState cluster = new ClusterState(new ServerBlackList());
+        ClusterHealthMonitor recordingMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306", "behind:3306"), checker, opener, cluster);
+        mockServers();
+        when(checker.check(behindStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.BEHIND, 5));
+
+        recordingMonitor.refresh();
+
+        assertThat(cluster.replicationLags.lag("behind:3306")).isEqualTo(OptionalLong.of(5));
+        assertThat(cluster.replicationLags.lag("ok:3306")).isEqualTo(OptionalLong.empty());
+    }
+
+    @Test
+    public void marksServerRecoveredWhenItIsUpAfterBeingDead() throws SQLException {
+        ClusterState cluster = new ClusterState(new ServerBlackList());
+        ClusterHealthMonitor recordingMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306"), checker, opener, cluster);
+        mockServers();
+        when(checker.check(okStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.OK), CheckResult.of(ConnectionStatus.DEAD), CheckResult.of(ConnectionStatus.OK));
+
+        recordingMonitor.refresh();
+        assertThat(cluster.recoveredAt("ok:3306")).isEqualTo(0);
+        recordingMonitor.refresh();
+        assertThat(cluster.recoveredAt("ok:3306")).isEqualTo(0);
+        long beforeRecovery = System.currentTimeMillis();
+        recordingMonitor.refresh();
+        assertThat(cluster.recoveredAt("ok:3306")).isGreaterThanOrEqualTo(beforeRecovery);
+    }
+
+    @Test
+    public void closesProbeConnectionWhenStatementCannotBeCreated() throws SQLException {
+        mockServers();
+        when(okConn.createStatement()).thenThrow(new SQLException("broken"));
+
+        monitor.refresh();
+
+        verify(okConn).close();
+        assertThat(monitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.DEAD));
+    }
+
+    @Test
+    public void followsChangesInServersOfCluster() throws SQLException {
+        List<String> servers = new ArrayList<>(Arrays.asList("ok:3306"));
+        ClusterHealthMonitor changingMonitor = new ClusterHealthMonitor(() -> servers, server -> checker, opener, new ClusterState(new ServerBlackList()));
+        mockServers();
+
+        changingMonitor.refresh();
+        servers.add("behind:3306");
+        changingMonitor.refresh();
+        assertThat(changingMonitor.status("behind:3306")).isEqualTo(Optional.of(ConnectionStatus.BEHIND));
+
+        servers.remove("ok:3306");
+        changingMonitor.refresh();
+        assertThat(changingMonitor.status("ok:3306")).isEqualTo(Optional.empty());
+        verify(okConn).close();
+    }
+
+    @Test
+    public void checksServersInParallelInGivenExecutor() throws Exception {
+        CountDownLatch bothOpening = new CountDownLatch(2);
+        ClusterHealthMonitor.ProbeConnectionOpener waitingOpener = server -> {
+            bothOpening.countDown();
+            awaitUninterruptibly(bothOpening);
+            return server.equals("ok:3306") ? okConn : behindConn;
+        };
+        ClusterHealthMonitor parallelMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306", "behind:3306"), checker, waitingOpener);
+        mockServers();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService checkExecutor = Executors.newFixedThreadPool(2);
+        try {
+            parallelMonitor.start(scheduler, checkExecutor, 60000);
+            assertThat(bothOpening.await(1, TimeUnit.SECONDS)).isTrue();
+            parallelMonitor.refresh().get(1, TimeUnit.SECONDS);
+            assertThat(parallelMonitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.OK));
+            assertThat(parallelMonitor.status("behind:3306")).isEqualTo(Optional.of(ConnectionStatus.BEHIND));
+        } finally {
+            parallelMonitor.stop();
+            scheduler.shutdownNow();
+            checkExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void doesNotWaitForChecksNorStartNewRefreshWhilePreviousIsInProgress() throws Exception {
+        CountDownLatch serverResponds = new CountDownLatch(1);
+        AtomicInteger opened = new AtomicInteger();
+        ClusterHealthMonitor.ProbeConnectionOpener slowOpener = server -> {
+            opened.incrementAndGet();
+            awaitUninterruptibly(serverResponds);
+            return okConn;
+        };
+        ClusterHealthMonitor slowMonitor = new ClusterHealthMonitor(Arrays.asList("ok:3306"), checker, slowOpener);
+        mockServers();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService checkExecutor = Executors.newCachedThreadPool();
+        try {
+            slowMonitor.start(scheduler, checkExecutor, 60000);
+            CompletableFuture<Void> refresh = slowMonitor.refresh();
+            assertThat(refresh.isDone()).isFalse();
+            assertThat(scheduler.schedule(() -> true, 0, TimeUnit.MILLISECONDS).get(1, TimeUnit.SECONDS)).isTrue();
+
+            serverResponds.countDown();
+            refresh.get(1, TimeUnit.SECONDS);
+            assertThat(opened.get()).isEqualTo(1);
+            assertThat(slowMonitor.status("ok:3306")).isEqualTo(Optional.of(ConnectionStatus.OK));
+        } finally {
+            slowMonitor.stop();
+            scheduler.shutdownNow();
+            checkExecutor.shutdownNow();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void mockServers() throws SQLException {
+        when(opener.open("ok:3306")).thenReturn(okConn);
+        when(opener.open("behind:3306")).thenReturn(behindConn);
+        when(okConn.createStatement()).thenReturn(okStatement);
+        when(behindConn.createStatement()).thenReturn(behindStatement);
+        when(opener.open("down:3306")).thenThrow(new SQLException("Connection refused"));
+        when(checker.check(okStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.OK));
+        when(checker.check(behindStatement, 1)).thenReturn(CheckResult.of(ConnectionStatus.BEHIND));
+    }
+}
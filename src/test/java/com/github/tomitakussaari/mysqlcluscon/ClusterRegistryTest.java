@@ -0,0 +1,97 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ClusterRegistryTest {
+
+    private final ClusterRegistry clusterRegistry = new ClusterRegistry();
+
+    @Test
+    public void urlsPointingToSameServersHaveSameKey() throws SQLException {
+        assertEquals(
+                clusterKey("jdbc:myscluscon:mysql:read_cluster://A,b:3307/database?maxSlaveLag=3"),
+                clusterKey("jdbc:myscluscon:mysql:read_cluster://B:3307,a,A:3306/other")
+        );
+    }
+
+    @Test
+    public void urlsOfDifferentTypeOrServersHaveDifferentKey() throws SQLException {
+        assertNotEquals(clusterKey("jdbc:myscluscon:mysql:read_cluster://A,B/database"), clusterKey("jdbc:myscluscon:mysql:galera://A,B/database"));
+        assertNotEquals(clusterKey("jdbc:myscluscon:mysql:read_cluster://A,B/database"), clusterKey("jdbc:myscluscon:mysql:read_cluster://A,B:3307/database"));
+    }
+
+    @Test
+    public void returnsSameStateForSameKey() {
+        assertSame(clusterRegistry.cluster("A"), clusterRegistry.cluster("A"));
+        assertNotSame(clusterRegistry.cluster("A"), clusterRegistry.cluster("B"));
+    }
+
+    @Test
+    public void clustersShareBlackList() {
+        assertSame(clusterRegistry.serverBlackList, clusterRegistry.cluster("A").serverBlackList);
+        assertSame(clusterRegistry.serverBlackList, clusterRegistry.cluster("B").serverBlackList);
+    }
+
+    @Test
+    public void statusesAreCachedSeparatelyForEachUrl() throws SQLException {
+        URLHelpers.URLInfo strict = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?maxSlaveLag=1");
+        URLHelpers.URLInfo loose = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?maxSlaveLag=100");
+        ClusterState cluster = clusterRegistry.cluster(ClusterRegistry.clusterKey(strict));
+
+        assertSame(cluster.serverStatusCache(strict), cluster.serverStatusCache(URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?maxSlaveLag=1")));
+        assertNotSame(cluster.serverStatusCache(strict), cluster.serverStatusCache(loose));
+    }
+
+    @Test
+    public void healthMonitorsAreSharedOnlyByCallersWithSameCredentials() throws SQLException {
+        URLHelpers.URLInfo url = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?healthCheckIntervalMs=1000");
+        ClusterState cluster = clusterRegistry.cluster(ClusterRegistry.clusterKey(url));
+
+        ClusterHealthMonitor monitor = cluster.healthMonitor(url, credentials("app", "secret"), this::newMonitor);
+
+        assertSame(monitor, cluster.healthMonitor(url, credentials("app", "secret"), this::newMonitor));
+        assertNotSame(monitor, cluster.healthMonitor(url, credentials("admin", "secret"), this::newMonitor));
+        assertNotSame(monitor, cluster.healthMonitor(url, credentials("app", "other"), this::newMonitor));
+    }
+
+    @Test
+    public void stoppedHealthMonitorsAreStartedAgainWhenNeeded() throws SQLException {
+        URLHelpers.URLInfo url = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?healthCheckIntervalMs=1000");
+        ClusterState cluster = clusterRegistry.cluster(ClusterRegistry.clusterKey(url));
+        ClusterHealthMonitor monitor = cluster.healthMonitor(url, credentials("app", "secret"), this::newMonitor);
+
+        cluster.stopHealthMonitors(url);
+
+        assertNull(cluster.existingHealthMonitor(url));
+        assertNotSame(monitor, cluster.healthMonitor(url, credentials("app", "secret"), this::newMonitor));
+    }
+
+    @Test
+    public void sharedRegistryIsSingleton() {
+        assertSame(ClusterRegistry.shared(), ClusterRegistry.shared());
+    }
+
+    private ClusterHealthMonitor newMonitor(URLHelpers.URLInfo urlInfo) {
+        return new ClusterHealthMonitor(urlInfo.servers, (conn, timeout) -> ConnectionStatus.OK, server -> null);
+    }
+
+    private static Properties credentials(String user, String password) {
+        Properties info = new Properties();
+        info.setProperty("user", user);
+        info.setProperty("password", password);
+        return info;
+    }
+
+    private String clusterKey(String jdbcUrl) throws SQLException {
+        return ClusterRegistry.clusterKey(URLHelpers.parse(jdbcUrl));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ClusterTopologyTest {
+
+    private final List<String> configuredServers = Arrays.asList("A:3306", "B:3306");
+    private final Connection sourceConn = Mockito.mock(Connection.class);
+    private final TopologyDiscovery discovery = Mockito.mock(TopologyDiscovery.class);
+    private final ClusterHealthMonitor.ProbeConnectionOpener opener = Mockito.mock(ClusterHealthMonitor.ProbeConnectionOpener.class);
+    private final ClusterTopology topology = new ClusterTopology();
+
+    @Test
+    public void returnsConfiguredServersWhenNothingIsDiscovered() {
+        assertThat(topology.servers(configuredServers)).isSameAs(configuredServers);
+    }
+
+    @Test
+    public void addsDiscoveredServersAfterConfiguredServers() throws SQLException {
+        when(opener.open("A:3306")).thenReturn(sourceConn);
+        when(discovery.discoverServers(sourceConn, 1)).thenReturn(Arrays.asList("B:3306", "C", "D:3307"));
+
+        topology.refresh(configuredServers, discovery, opener);
+
+        assertThat(topology.discoveredServers()).containsExactly("B:3306", "C:3306", "D:3307");
+        assertThat(topology.servers(configuredServers)).containsExactly("A:3306", "B:3306", "C:3306", "D:3307");
+        verify(sourceConn).close();
+    }
+
+    @Test
+    public void asksNextSourceWhenSourceIsDownOrDoesNotKnowItsCluster() throws SQLException {
+        Connection secondConn = Mockito.mock(Connection.class);
+        Connection thirdConn = Mockito.mock(Connection.class);
+        when(opener.open("down:3306")).thenThrow(new SQLException("Connection refused"));
+        when(opener.open("slave:3306")).thenReturn(secondConn);
+        when(opener.open("master:3306")).thenReturn(thirdConn);
+        when(discovery.discoverServers(secondConn, 1)).thenReturn(Collections.emptyList());
+        when(discovery.discoverServers(thirdConn, 1)).thenReturn(Arrays.asList("C:3306"));
+
+        topology.refresh(Arrays.asList("down:3306", "slave:3306", "master:3306"), discovery, opener);
+
+        assertThat(topology.discoveredServers()).containsExactly("C:3306");
+    }
+
+    @Test
+    public void keepsPreviouslyDiscoveredServersWhenNoSourceAnswers() throws SQLException {
+        when(opener.open("A:3306")).thenReturn(sourceConn);
+        when(discovery.discoverServers(sourceConn, 1)).thenReturn(Arrays.asList("C:3306")).thenThrow(new SQLException("broken"));
+
+        topology.refresh(Collections.singletonList("A:3306"), discovery, opener);
+        topology.refresh(Collections.singletonList("A:3306"), discovery, opener);
+
+        assertThat(topology.discoveredServers()).containsExactly("C:3306");
+    }
+
+    @Test
+    public void dropsServersThatAreNoLongerDiscovered() throws SQLException {
+        when(opener.open("A:3306")).thenReturn(sourceConn);
+        when(discovery.discoverServers(sourceConn, 1)).thenReturn(Arrays.asList("C:3306", "D:3306")).thenReturn(Arrays.asList("D:3306"));
+
+        topology.refresh(Collections.singletonList("A:3306"), discovery, opener);
+        topology.refresh(Collections.singletonList("A:3306"), discovery, opener);
+
+        assertThat(topology.servers(configuredServers)).containsExactly("A:3306", "B:3306", "D:3306");
+    }
+
+    @Test
+    public void doesNotAskSourcesWhenNotStarted() throws SQLException {
+        topology.servers(configuredServers);
+        verify(discovery, never()).discoverServers(any(Connection.class), anyInt());
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class ConcurrentServerProbeTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch slowServerLatch = new CountDownLatch(1);
+    private final Connection slowConnection = Mockito.mock(Connection.class);
+    private final Connection fastConnection = Mockito.mock(Connection.class);
+
+    private final Function<String, Optional<ConnectionInfo>> connector = server -> {
+        if(server.equals("slow")) {
+            awaitUninterruptibly(slowServerLatch);
+            return Optional.of(new ConnectionInfo(server, slowConnection, (conn, t) -> ConnectionStatus.OK));
+        }
+        return Optional.of(new ConnectionInfo(server, fastConnection, (conn, t) -> ConnectionStatus.OK));
+    };
+
+    @After
+    public void after() {
+        slowServerLatch.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void hedgedProbeStartsNextServerWhenFirstOneIsSlow() throws SQLException {
+        try(ConcurrentServerProbe probe = ConcurrentServerProbe.hedged(executor, Arrays.asList("slow", "fast"), 2, 10, connector)) {
+            ServerProbe.Attempt attempt = probe.next();
+            assertEquals("fast", attempt.getServer());
+            assertTrue(probe.hasNext());
+        }
+        slowServerLatch.countDown();
+        verify(slowConnection, timeout(1000)).close();
+    }
+
+    @Test
+    public void hedgedProbeDoesNotStartMoreThanMaxAttempts() throws SQLException {
+        try(ConcurrentServerProbe probe = ConcurrentServerProbe.hedged(executor, Arrays.asList("slow", "fast"), 1, 10, connector)) {
+            slowServerLatch.countDown();
+            assertEquals("slow", probe.next().getServer());
+            assertEquals("fast", probe.next().getServer());
+            assertFalse(probe.hasNext());
+        }
+    }
+
+    @Test
+    public void parallelProbeStartsAllServersAtOnce() throws SQLException {
+        try(ConcurrentServerProbe probe = ConcurrentServerProbe.parallel(executor, Arrays.asList("slow", "fast"), 2, connector)) {
+            assertEquals("fast", probe.next().getServer());
+            slowServerLatch.countDown();
+            assertEquals("slow", probe.next().getServer());
+            assertFalse(probe.hasNext());
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -15,7 +15,7 @@ public class ConnectionInfoTest {
     public void silentlyClosesConnectionEvenIfItThrowsSQLException() throws SQLException {
         Connection conn = mock(Connection.class);
         ConnectionChecker checker = mock(ConnectionChecker.class);
-        ConnectionInfo connectionInfo = new ConnectionInfo(conn, checker);
+        ConnectionInfo connectionInfo = new ConnectionInfo("A:3306", conn, checker);
 
         doThrow(new SQLException()).when(conn).close();
 
@@ -0,0 +1,145 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.galera.GaleraClusterConnectionChecker;
+import com.github.tomitakussaari.mysqlcluscon.read_cluster.ReadClusterConnectionChecker;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ConnectionSettingsTest {
+
+    @Test
+    public void defaults() throws SQLException {
+        ConnectionSettings settings = ConnectionSettings.parse("jdbc:myscluscon:mysql:galera://A,B/database");
+        assertThat(settings.connectionChecker).isInstanceOf(GaleraClusterConnectionChecker.class);
+        assertEquals(ConnectionStatus.STOPPED, settings.wantedConnectionStatus);
+        assertEquals(ProbeMode.SEQUENTIAL, settings.probeMode);
+        assertEquals(ServerSelection.RANDOM, settings.serverSelection);
+        assertSame(ServerSelection.RANDOM.getStrategy(), settings.serverSelectionStrategy);
+        assertEquals(3, settings.probeParallelism);
+        assertEquals(OptionalLong.empty(), settings.hedgeDelayInMs);
+        assertEquals(OptionalLong.empty(), settings.healthCheckIntervalInMs);
+        assertEquals(0, settings.validationCacheInMs);
+        assertEquals(5000, settings.blackListInitialInMs);
+        assertEquals(120000, settings.blackListMaxInMs);
+        assertEquals(OptionalLong.empty(), settings.discoveryIntervalInMs);
+        assertEquals(Arrays.asList("A:3306", "B:3306"), settings.discoverySources);
+        assertEquals("jdbc:mysql://A:3306/database?connectTimeout=500", settings.urlInfo.asJdbcConnectUrl("A:3306"));
+    }
+
+    @Test
+    public void parsesSettingsFromQueryParameters() throws SQLException {
+        ConnectionSettings settings = ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database?connectionStatus=behind" +
+                "&probeMode=hedged&probeParallelism=2&hedgeAfterMs=20&healthCheckIntervalMs=1000&validationCacheMs=500" +
+                "&blackListInitialMs=100&blackListMaxMs=1000&serverSelection=latency&slowStartMs=30000" +
+                "&discoveryIntervalMs=10000&discoverFrom=master,backup:3307");
+        assertThat(settings.connectionChecker).isInstanceOf(ReadClusterConnectionChecker.class);
+        assertEquals(ConnectionStatus.BEHIND, settings.wantedConnectionStatus);
+        assertEquals(ProbeMode.HEDGED, settings.probeMode);
+        assertEquals(ServerSelection.LATENCY, settings.serverSelection);
+        assertThat(settings.serverSelectionStrategy).isInstanceOf(SlowStartServerSelection.class);
+        assertEquals(2, settings.probeParallelism);
+        assertEquals(OptionalLong.of(20), settings.hedgeDelayInMs);
+        assertEquals(OptionalLong.of(1000), settings.healthCheckIntervalInMs);
+        assertEquals(500, settings.validationCacheInMs);
+        assertEquals(100, settings.blackListInitialInMs);
+        assertEquals(1000, settings.blackListMaxInMs);
+        assertEquals(OptionalLong.of(10000), settings.discoveryIntervalInMs);
+        assertEquals(Arrays.asList("master:3306", "backup:3307"), settings.discoverySources);
+    }
+
+    @Test
+    public void unknownValuesFallBackToDefaults() throws SQLException {
+        ConnectionSettings settings = ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A/database?connectionStatus=foo&probeMode=bar&probeParallelism=0");
+        assertEquals(ConnectionStatus.STOPPED, settings.wantedConnectionStatus);
+        assertEquals(ProbeMode.SEQUENTIAL, settings.probeMode);
+        assertEquals(1, settings.probeParallelism);
+    }
+
+    @Test
+    public void invalidNumericValuesAreReportedWithParameterName() {
+        assertThatThrownBy(() -> ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A/database?healthCheckIntervalMs=1s"))
+                .isInstanceOf(SQLException.class).hasMessage("Invalid value for url parameter healthCheckIntervalMs: 1s");
+        assertThatThrownBy(() -> ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A/database?maxSlaveLag=x"))
+                .isInstanceOf(SQLException.class).hasMessage("Invalid value for url parameter maxSlaveLag: x");
+        assertThatThrownBy(() -> ConnectionSettings.parse("jdbc:myscluscon:galera:cluster://A/database?maxFlowControlPaused=high"))
+                .isInstanceOf(SQLException.class).hasMessage("Invalid value for url parameter maxFlowControlPaused: high");
+    }
+
+    @Test
+    public void maxBlackListTimeIsNeverShorterThanInitialBlackListTime() throws SQLException {
+        ConnectionSettings settings = ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A/database?blackListInitialMs=10000&blackListMaxMs=1000");
+        assertEquals(10000, settings.blackListMaxInMs);
+    }
+
+    @Test
+    public void onlyReplicationUrlsHaveReplicationSettings() throws SQLException {
+        assertEquals(Optional.empty(), ConnectionSettings.parse("jdbc:myscluscon:mysql:read_cluster://A,B/database").replication);
+    }
+
+    @Test
+    public void replicationIsSplitToMasterAndReplicas() throws SQLException {
+        ConnectionSettings.Replication replication = ConnectionSettings.parse("jdbc:myscluscon:mysql:replication://M,A,B/database?connectionStatus=OK").replication.get();
+        assertEquals(Collections.singletonList("M:3306"), replication.master.urlInfo.servers);
+        assertEquals(Arrays.asList("A:3306", "B:3306"), replication.replicas.urlInfo.servers);
+        assertEquals(MysclusconDriver.ConnectionType.MYSQL_READ_CLUSTER, replication.replicas.urlInfo.connectionType);
+        assertThat(replication.replicas.connectionChecker).isInstanceOf(ReadClusterConnectionChecker.class);
+        assertEquals(ConnectionStatus.OK, replication.replicas.wantedConnectionStatus);
+        assertEquals(ConnectionStatus.OK, replication.master.wantedConnectionStatus);
+        assertEquals("jdbc:mysql://A:3306/database?connectionStatus=OK&connectTimeout=500&discoverFrom=M:3306", replication.replicas.urlInfo.asJdbcConnectUrl("A:3306"));
+    }
+
+    @Test
+    public void replicasAreDiscoveredFromMasterButMasterIsNotDiscovered() throws SQLException {
+        ConnectionSettings.Replication replication = ConnectionSettings.parse("jdbc:myscluscon:mariadb:replication://M,A/database?discoveryIntervalMs=1000").replication.get();
+        assertEquals(MysclusconDriver.ConnectionType.MARIADB_READ_CLUSTER, replication.master.urlInfo.connectionType);
+        assertEquals(OptionalLong.empty(), replication.master.discoveryIntervalInMs);
+        assertEquals(OptionalLong.of(1000), replication.replicas.discoveryIntervalInMs);
+        assertEquals(Collections.singletonList("M:3306"), replication.replicas.discoverySources);
+    }
+
+    @Test
+    public void reusesTimedCheckerOfEachServer() throws SQLException {
+        ConnectionSettings settings = ConnectionSettings.parse("jdbc:myscluscon:mysql:galera://A,B/database");
+        assertSame(settings.timedConnectionChecker("A:3306"), settings.timedConnectionChecker("A:3306"));
+        assertNotSame(settings.timedConnectionChecker("A:3306"), settings.timedConnectionChecker("B:3306"));
+    }
+
+    @Test
+    public void cacheReturnsSameSettingsForSameUrl() throws SQLException {
+        ConnectionSettingsCache cache = new ConnectionSettingsCache();
+        ConnectionSettings settings = cache.get("jdbc:myscluscon:mysql:galera://A,B/database");
+        assertSame(settings, cache.get("jdbc:myscluscon:mysql:galera://A,B/database"));
+        assertNotSame(settings, cache.get("jdbc:myscluscon:mysql:galera://A,C/database"));
+    }
+
+    @Test
+    public void cacheDoesNotGrowOverMaxSize() throws SQLException {
+        ConnectionSettingsCache cache = new ConnectionSettingsCache(2);
+        cache.get("jdbc:myscluscon:mysql:galera://A/database");
+        cache.get("jdbc:myscluscon:mysql:galera://B/database");
+        cache.get("jdbc:myscluscon:mysql:galera://C/database");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void cacheGivesEvictedSettingsToListener() throws SQLException {
+        List<ConnectionSettings> evicted = new ArrayList<>();
+        ConnectionSettingsCache cache = new ConnectionSettingsCache(1, evicted::add);
+        ConnectionSettings first = cache.get("jdbc:myscluscon:mysql:galera://A/database");
+        cache.get("jdbc:myscluscon:mysql:galera://B/database");
+        assertEquals(Collections.singletonList(first), evicted);
+    }
+}
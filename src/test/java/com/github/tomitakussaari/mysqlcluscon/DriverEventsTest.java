@@ -0,0 +1,87 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+public class DriverEventsTest {
+
+    private final DriverEvents events = DriverEvents.get();
+
+    @Before
+    public void requireFlightRecorder() {
+        assumeTrue("JVM has no flight recorder", events instanceof JfrDriverEvents);
+    }
+
+    @Test
+    public void nothingIsStartedWhenEventsAreNotRecorded() {
+        assertNull(events.beginConnect());
+        assertNull(events.beginStatusCheck());
+        assertNull(events.beginServerSelection());
+        assertNull(events.beginValidation());
+    }
+
+    @Test
+    public void recordsDriverEvents() throws IOException {
+        List<RecordedEvent> recorded = record(() -> {
+            events.connected(events.beginConnect(), "A:3306", true);
+            events.statusChecked(events.beginStatusCheck(), "ReadClusterConnectionChecker", "B:3306", ConnectionStatus.BEHIND, 5);
+            events.serverSelected(events.beginServerSelection(), 2, "A:3306", ConnectionStatus.BEHIND);
+            events.blackListed("B:3306", 5000, 1);
+            events.validated(events.beginValidation(), "A:3306", ConnectionStatus.OK, true);
+        });
+
+        assertThat(recorded.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList())).containsExactly(
+                "myscluscon.Connect", "myscluscon.StatusCheck", "myscluscon.ServerSelection", "myscluscon.BlackList", "myscluscon.Validation");
+        assertEquals("A:3306", recorded.get(0).getString("server"));
+        assertEquals(true, recorded.get(0).getBoolean("succeeded"));
+        assertEquals("B:3306", recorded.get(1).getString("server"));
+        assertEquals("BEHIND", recorded.get(1).getString("status"));
+        assertEquals(5, recorded.get(1).getLong("replicationLagInSeconds"));
+        assertEquals(2, recorded.get(2).getInt("candidates"));
+        assertEquals("B:3306", recorded.get(3).getString("server"));
+        assertEquals(true, recorded.get(4).getBoolean("valid"));
+    }
+
+    @Test
+    public void recordsBlackListingOfServer() throws IOException {
+        List<RecordedEvent> recorded = record(() -> new ServerBlackList(() -> 0L, 1000).blackList("C:3306"));
+
+        assertEquals(1, recorded.size());
+        assertEquals("C:3306", recorded.get(0).getString("server"));
+        assertEquals(1000, recorded.get(0).getLong("blackListTime"));
+    }
+
+    private static List<RecordedEvent> record(Runnable work) throws IOException {
+        File file = File.createTempFile("myscluscon", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("myscluscon.Connect").withoutThreshold();
+            recording.enable("myscluscon.StatusCheck").withoutThreshold();
+            recording.enable("myscluscon.ServerSelection").withoutThreshold();
+            recording.enable("myscluscon.BlackList");
+            recording.enable("myscluscon.Validation").withoutThreshold();
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(file.toPath());
+            return RecordingFile.readAllEvents(file.toPath()).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("myscluscon."))
+                    .sorted((left, right) -> left.getStartTime().compareTo(right.getStartTime()))
+                    .collect(Collectors.toList());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class DriverExecutorsTest {
+
+    private ExecutorService executor;
+
+    @After
+    public void after() {
+        if(executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void usesBoundedPoolOfDaemonPlatformThreadsWithoutVirtualThreads() throws Exception {
+        executor = DriverExecutors.newExecutor("myscluscon-test", false);
+
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+        assertThat(thread.getName()).isEqualTo("myscluscon-test");
+        assertThat(thread.isDaemon()).isTrue();
+        assertThat(((ThreadPoolExecutor) executor).getMaximumPoolSize()).isEqualTo(DriverExecutors.maxPlatformThreads);
+        assertThat(((ThreadPoolExecutor) executor).getQueue()).isInstanceOf(SynchronousQueue.class);
+    }
+
+    @Test
+    public void runsTaskInSubmittingThreadWhenAllThreadsAreBusy() throws Exception {
+        executor = DriverExecutors.platformThreadPool("myscluscon-test", 1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(blocked.await(1, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<Thread> ranIn = new AtomicReference<>();
+        executor.execute(() -> ranIn.set(Thread.currentThread()));
+        release.countDown();
+
+        assertThat(ranIn.get()).isSameAs(Thread.currentThread());
+        assertThat(((ThreadPoolExecutor) executor).getLargestPoolSize()).isEqualTo(1);
+    }
+
+    @Test
+    public void runsEachTaskInVirtualThreadWhenAvailable() throws Exception {
+        Method isVirtual = isVirtualMethod();
+        assumeTrue("JVM has no virtual threads", isVirtual != null);
+        executor = DriverExecutors.newExecutor("myscluscon-test", true);
+
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+        assertThat(thread.getName()).isEqualTo("myscluscon-test");
+        assertThat((Boolean) isVirtual.invoke(thread)).isTrue();
+    }
+
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
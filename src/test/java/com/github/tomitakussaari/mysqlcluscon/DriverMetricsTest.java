@@ -0,0 +1,70 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import com.github.tomitakussaari.mysqlcluscon.read_cluster.ReadClusterConnectionChecker;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class DriverMetricsTest {
+
+    private final DriverMetrics metrics = new DriverMetrics();
+
+    @Test
+    public void countsConnectAttemptsAndFailuresPerServer() {
+        metrics.connectAttempted("A:3306", true, 1000);
+        metrics.connectAttempted("A:3306", false, 2000);
+        metrics.connectAttempted("B:3306", true, 3000);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(Long.valueOf(2), snapshot.getConnectAttempts().get("A:3306"));
+        assertEquals(Long.valueOf(1), snapshot.getConnectAttempts().get("B:3306"));
+        assertEquals(Long.valueOf(1), snapshot.getConnectFailures().get("A:3306"));
+        assertThat(snapshot.getConnectFailures()).doesNotContainKey("B:3306");
+        assertEquals(3, snapshot.getConnectLatency().getCount());
+        assertEquals(3000, snapshot.getConnectLatency().getMaxInNanos());
+    }
+
+    @Test
+    public void recordsStatusQueryLatencyByChecker() throws SQLException {
+        ConnectionChecker timed = metrics.timed(new ReadClusterConnectionChecker(1), "A:3306");
+        timed.check(Mockito.mock(Connection.class), 1);
+        timed.connectionStatus(Mockito.mock(Connection.class), 1);
+
+        assertEquals(2, metrics.snapshot().getStatusQueryLatencies().get("ReadClusterConnectionChecker").getCount());
+    }
+
+    @Test
+    public void countsValidationResultsAndChosenStatuses() {
+        metrics.validated(true);
+        metrics.validated(false);
+        metrics.validated(false);
+        metrics.chosen(ConnectionStatus.OK);
+        metrics.chosen(ConnectionStatus.BEHIND);
+        metrics.chosen(ConnectionStatus.OK);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getValidResults());
+        assertEquals(2, snapshot.getInvalidResults());
+        assertEquals(Long.valueOf(2), snapshot.getChosenStatuses().get("OK"));
+        assertEquals(Long.valueOf(1), snapshot.getChosenStatuses().get("BEHIND"));
+        assertEquals(Long.valueOf(0), snapshot.getChosenStatuses().get("DEAD"));
+    }
+
+    @Test
+    public void sharedMetricsAreAvailableViaJmx() throws Exception {
+        DriverMetrics.shared().connectAttempted("jmx:3306", true, 1000);
+
+        ObjectName name = new ObjectName(DriverMetrics.objectName);
+        CompositeData connectLatency = (CompositeData) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ConnectLatency");
+        assertThat((Long) connectLatency.get("count")).isGreaterThanOrEqualTo(1L);
+        assertThat(MetricsSnapshot.current().getConnectAttempts()).containsKey("jmx:3306");
+    }
+}
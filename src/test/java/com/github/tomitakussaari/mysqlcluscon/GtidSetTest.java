@@ -0,0 +1,84 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GtidSetTest {
+
+    private static final String uuid = "3E11FA47-71CA-11E1-9E33-C80AA9429562";
+    private static final String otherUuid = "4E11FA47-71CA-11E1-9E33-C80AA9429562";
+
+    @Test
+    public void mySqlSetContainsTransactionsWithinItsIntervals() throws SQLException {
+        GtidSet executed = GtidSet.parse(uuid + ":1-10:15-20,\n" + otherUuid + ":1-3");
+
+        assertThat(executed.contains(GtidSet.parse(uuid + ":5"))).isTrue();
+        assertThat(executed.contains(GtidSet.parse(uuid.toLowerCase() + ":1-10:16-20," + otherUuid + ":2"))).isTrue();
+        assertThat(executed.contains(GtidSet.parse(uuid + ":10-15"))).isFalse();
+        assertThat(executed.contains(GtidSet.parse(otherUuid + ":4"))).isFalse();
+        assertThat(executed.contains(GtidSet.parse("5E11FA47-71CA-11E1-9E33-C80AA9429562:1"))).isFalse();
+    }
+
+    @Test
+    public void adjacentIntervalsAreMerged() throws SQLException {
+        assertThat(GtidSet.parse(uuid + ":1-5:6-10").contains(GtidSet.parse(uuid + ":3-8"))).isTrue();
+    }
+
+    @Test
+    public void mariaDbPositionContainsEarlierSequenceNumbersOfSameDomain() throws SQLException {
+        GtidSet executed = GtidSet.parse("0-1-100,1-2-50");
+
+        assertThat(executed.contains(GtidSet.parse("0-1-100"))).isTrue();
+        assertThat(executed.contains(GtidSet.parse("0-3-90,1-2-10"))).isTrue();
+        assertThat(executed.contains(GtidSet.parse("0-1-101"))).isFalse();
+        assertThat(executed.contains(GtidSet.parse("2-1-1"))).isFalse();
+    }
+
+    @Test
+    public void emptySetIsContainedInEverySet() throws SQLException {
+        assertThat(GtidSet.parse("").isEmpty()).isTrue();
+        assertThat(GtidSet.parse(uuid + ":1").contains(GtidSet.parse(""))).isTrue();
+    }
+
+    @Test(expected = SQLException.class)
+    public void invalidSetIsNotAccepted() throws SQLException {
+        GtidSet.parse(uuid + ":1-x");
+    }
+
+    @Test
+    public void waitsWithMasterGtidWaitOnMariaDb() throws SQLException {
+        PreparedStatement statement = mockWait("SELECT MASTER_GTID_WAIT(?, ?)", 0);
+
+        assertThat(GtidSet.parse("0-1-100").awaitExecuted(statement.getConnection(), 1500)).isTrue();
+        verify(statement).setString(1, "0-1-100");
+        verify(statement).setDouble(2, 1.5);
+    }
+
+    @Test
+    public void waitTimesOutWhenWaitFunctionDoesNotReturnZero() throws SQLException {
+        PreparedStatement statement = mockWait("SELECT WAIT_FOR_EXECUTED_GTID_SET(?, ?)", 1);
+
+        assertThat(GtidSet.parse(uuid + ":1").awaitExecuted(statement.getConnection(), 100)).isFalse();
+    }
+
+    private static PreparedStatement mockWait(String query, int result) throws SQLException {
+        Connection conn = Mockito.mock(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        when(conn.prepareStatement(query)).thenReturn(statement);
+        when(statement.getConnection()).thenReturn(conn);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(result);
+        return statement;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramHasNoLatencies() {
+        MetricsSnapshot.Latency latency = new LatencyHistogram().snapshot();
+        assertEquals(0, latency.getCount());
+        assertEquals(0, latency.getMedianInNanos());
+        assertEquals(0, latency.getMaxInNanos());
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 4; i++) {
+            histogram.record(i);
+        }
+        MetricsSnapshot.Latency latency = histogram.snapshot();
+        assertEquals(4, latency.getCount());
+        assertEquals(2, latency.getMedianInNanos());
+        assertEquals(4, latency.get99thPercentileInNanos());
+    }
+
+    @Test
+    public void percentilesAreWithinPrecisionOfHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000_000);
+        }
+        MetricsSnapshot.Latency latency = histogram.snapshot();
+        assertThat(latency.getMedianInNanos()).isBetween(500_000_000L, 562_500_000L);
+        assertThat(latency.get95thPercentileInNanos()).isBetween(950_000_000L, 1000_000_000L);
+        assertEquals(1000_000_000L, latency.get99thPercentileInNanos());
+        assertEquals(1000_000_000L, latency.getMaxInNanos());
+    }
+
+    @Test
+    public void bucketsCoverAllValues() {
+        assertEquals(LatencyHistogram.bucketCount - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketCount - 1));
+        for(long value : new long[] {0, 7, 8, 9, 15, 16, 17, 1000, 123_456_789}) {
+            int bucket = LatencyHistogram.bucketIndex(value);
+            assertThat(LatencyHistogram.highestValueOf(bucket)).isGreaterThanOrEqualTo(value);
+            if(bucket > 0) {
+                assertThat(LatencyHistogram.highestValueOf(bucket - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void negativeLatenciesAreRecordedAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.snapshot().getMaxInNanos());
+        assertEquals(1, histogram.snapshot().getCount());
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import java.util.OptionalLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LatencyStatsTest {
+
+    @Test
+    public void noPercentileUntilEnoughSamples() {
+        LatencyStats stats = new LatencyStats(10, 5);
+        for(int i = 0; i < 4; i++) {
+            stats.record(i);
+        }
+        assertFalse(stats.percentile(95).isPresent());
+    }
+
+    @Test
+    public void calculatesPercentileFromSamples() {
+        LatencyStats stats = new LatencyStats(100, 5);
+        for(int i = 100; i > 0; i--) {
+            stats.record(i);
+        }
+        assertEquals(OptionalLong.of(95), stats.percentile(95));
+        assertEquals(OptionalLong.of(50), stats.percentile(50));
+    }
+
+    @Test
+    public void oldSamplesAreOverwritten() {
+        LatencyStats stats = new LatencyStats(5, 5);
+        for(int i = 0; i < 5; i++) {
+            stats.record(1000);
+        }
+        for(int i = 0; i < 5; i++) {
+            stats.record(10);
+        }
+        assertEquals(OptionalLong.of(10), stats.percentile(95));
+    }
+}
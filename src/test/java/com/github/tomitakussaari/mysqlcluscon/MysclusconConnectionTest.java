@@ -0,0 +1,133 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Wrapper;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MysclusconConnectionTest {
+
+    private final Connection realConnection = Mockito.mock(Connection.class);
+    private final ConnectionChecker checker = Mockito.mock(ConnectionChecker.class);
+    private final MysclusconConnection connection = new MysclusconConnection(realConnection, checker, ConnectionStatus.STOPPED, ConnectionStatus.OK);
+
+    interface VendorConnection extends Connection {
+    }
+
+    interface VendorExtension extends Wrapper {
+    }
+
+    @Test
+    public void delegatesCallsToRealConnection() throws SQLException {
+        connection.setAutoCommit(false);
+        connection.commit();
+        connection.close();
+
+        verify(realConnection).setAutoCommit(false);
+        verify(realConnection).commit();
+        verify(realConnection).close();
+    }
+
+    @Test
+    public void notifiesCloseListenerOnlyOnce() throws SQLException {
+        Runnable closeListener = Mockito.mock(Runnable.class);
+        MysclusconConnection listenedConnection = new MysclusconConnection(realConnection, checker, ConnectionStatus.STOPPED, ConnectionStatus.OK, closeListener);
+
+        listenedConnection.close();
+        listenedConnection.close();
+        listenedConnection.abort(null);
+
+        verify(closeListener, times(1)).run();
+    }
+
+    @Test
+    public void notifiesCloseListenerEvenIfClosingRealConnectionFails() throws SQLException {
+        Runnable closeListener = Mockito.mock(Runnable.class);
+        MysclusconConnection listenedConnection = new MysclusconConnection(realConnection, checker, ConnectionStatus.STOPPED, ConnectionStatus.OK, closeListener);
+        doThrow(new SQLException("broken")).when(realConnection).close();
+
+        try {
+            listenedConnection.close();
+        } catch (SQLException e) {
+            verify(closeListener).run();
+        }
+    }
+
+    @Test
+    public void unwrapsToItself() throws SQLException {
+        assertThat(connection.isWrapperFor(MysclusconConnection.class)).isTrue();
+        assertThat(connection.unwrap(MysclusconConnection.class)).isSameAs(connection);
+    }
+
+    @Test
+    public void unwrapsToRealConnection() throws SQLException {
+        VendorConnection vendorConnection = Mockito.mock(VendorConnection.class);
+        MysclusconConnection wrapper = new MysclusconConnection(vendorConnection, checker, ConnectionStatus.STOPPED, ConnectionStatus.OK);
+
+        assertThat(wrapper.isWrapperFor(VendorConnection.class)).isTrue();
+        assertThat(wrapper.unwrap(VendorConnection.class)).isSameAs(vendorConnection);
+    }
+
+    @Test
+    public void asksRealConnectionToUnwrapWhenItIsNotInstanceOfWantedInterface() throws SQLException {
+        VendorExtension extension = Mockito.mock(VendorExtension.class);
+        when(realConnection.isWrapperFor(VendorExtension.class)).thenReturn(true);
+        when(realConnection.unwrap(VendorExtension.class)).thenReturn(extension);
+
+        assertThat(connection.isWrapperFor(VendorExtension.class)).isTrue();
+        assertThat(connection.unwrap(VendorExtension.class)).isSameAs(extension);
+    }
+
+    @Test
+    public void isNotValidWhenStatusHasDroppedFromStatusOnCreate() throws SQLException {
+        when(checker.connectionStatus(realConnection, 5)).thenReturn(ConnectionStatus.BEHIND);
+        assertThat(connection.isValid(5)).isFalse();
+    }
+
+    @Test
+    public void requiresGtidSetFromServerOfRealConnection() throws SQLException {
+        MysclusconConnection.GtidRequirement gtidRequirement = Mockito.mock(MysclusconConnection.GtidRequirement.class);
+        MysclusconConnection requiringConnection = new MysclusconConnection("A:3306", realConnection, checker, ConnectionStatus.STOPPED, ConnectionStatus.OK, () -> {}, gtidRequirement, Optional::empty);
+
+        requiringConnection.unwrap(MysclusconConnection.class).requireAtLeast("0-1-100");
+
+        verify(gtidRequirement).requireAtLeast(realConnection, GtidSet.parse("0-1-100"));
+    }
+
+    @Test
+    public void refusesToCreateStatementsWhenKnownStatusOfServerIsNotGoodEnough() throws SQLException {
+        AtomicReference<Optional<ConnectionStatus>> status = new AtomicReference<>(Optional.empty());
+        MysclusconConnection monitoredConnection = new MysclusconConnection("A:3306", realConnection, checker, ConnectionStatus.BEHIND,
+                ConnectionStatus.OK, () -> {}, (conn, gtidSet) -> {}, status::get);
+
+        monitoredConnection.createStatement();
+        status.set(Optional.of(ConnectionStatus.BEHIND));
+        monitoredConnection.prepareStatement("SELECT 1");
+        status.set(Optional.of(ConnectionStatus.STOPPED));
+        try {
+            monitoredConnection.prepareCall("CALL foo()");
+            fail("statement should not be created");
+        } catch (SQLTransientConnectionException e) {
+            assertThat(e.getSQLState()).isEqualTo("08006");
+            assertThat(e.getMessage()).contains("A:3306");
+        }
+
+        verify(realConnection).createStatement();
+        verify(realConnection).prepareStatement("SELECT 1");
+        verify(realConnection, never()).prepareCall("CALL foo()");
+        verify(checker, never()).connectionStatus(realConnection, 1);
+    }
+}
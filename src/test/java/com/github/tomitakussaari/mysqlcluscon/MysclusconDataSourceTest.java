@@ -0,0 +1,247 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MysclusconDataSourceTest {
+
+    private static final String galeraStatusQuery = "SHOW STATUS WHERE Variable_name IN " +
+            "('wsrep_ready', 'wsrep_local_state_comment', 'wsrep_local_recv_queue', 'wsrep_flow_control_paused')";
+    private static final String url = "jdbc:myscluscon:mysql:galera://A:3306,B:3306/db?healthCheckIntervalMs=60000&maxPoolSize=3&connectionWaitMs=50";
+
+    private final Map<String, String> wsrepReady = new ConcurrentHashMap<>();
+    private final MysclusconDriver driver = new MysclusconDriver(new ClusterRegistry()) {
+        @Override
+        protected Connection openRealConnection(Properties info, String connectUrl) throws SQLException {
+            return galeraConnection(connectUrl.contains("//A:3306") ? "A:3306" : "B:3306");
+        }
+    };
+    private MysclusconDataSource dataSource;
+
+    interface RealConnection extends Connection {
+    }
+    private String jdbcUrl;
+
+    @After
+    public void closeDataSource() {
+        if(dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void opensIdleConnectionsToServersThatAreUp() throws SQLException {
+        wsrepReady.put("A:3306", "ON");
+        wsrepReady.put("B:3306", "OFF");
+        dataSource = refreshedDataSource(url + "&connectionStatus=OK&minIdlePerServer=2");
+
+        assertThat(dataSource.serverPool("A:3306").get().idleCount()).isEqualTo(2);
+        assertThat(dataSource.serverPool("B:3306").isPresent()).isFalse();
+        assertThat(dataSource.totalConnections()).isEqualTo(2);
+    }
+
+    @Test
+    public void neverOpensMoreConnectionsThanMaxPoolSize() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=2");
+
+        assertThat(dataSource.totalConnections()).isEqualTo(3);
+    }
+
+    @Test
+    public void reusesReturnedConnection() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=0");
+
+        Connection first = dataSource.getConnection();
+        MysclusconConnection pooled = first.unwrap(MysclusconConnection.class);
+        first.close();
+        Connection second = dataSource.getConnection();
+
+        assertThat(second.unwrap(MysclusconConnection.class)).isSameAs(pooled);
+        assertThat(dataSource.totalConnections()).isEqualTo(1);
+    }
+
+    @Test
+    public void closedHandleCanNotBeUsed() throws SQLException {
+        dataSource = refreshedDataSource(url);
+        Connection connection = dataSource.getConnection();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+        try {
+            connection.createStatement();
+            fail("closed handle should not be usable");
+        } catch (SQLException e) {
+            assertThat(e.getMessage()).isEqualTo("Connection is closed");
+        }
+    }
+
+    @Test
+    public void drainsPoolOfServerThatIsNoLongerGoodEnough() throws SQLException {
+        dataSource = refreshedDataSource(url + "&connectionStatus=OK&minIdlePerServer=1");
+        Connection inUse = dataSource.getConnection();
+        String serverInUse = inUse.unwrap(MysclusconConnection.class).getServer();
+        Connection realInUse = inUse.unwrap(RealConnection.class);
+
+        wsrepReady.put(serverInUse, "OFF");
+        refresh(dataSource);
+        inUse.close();
+
+        ServerPool drained = dataSource.serverPool(serverInUse).get();
+        assertThat(drained.isUsable()).isFalse();
+        assertThat(drained.size()).isEqualTo(0);
+        verify(realInUse).close();
+        Connection next = dataSource.getConnection();
+        assertThat(next.unwrap(MysclusconConnection.class).getServer()).isNotEqualTo(serverInUse);
+    }
+
+    @Test
+    public void drainsPoolAsSoonAsHealthMonitorSeesStatusDropWithoutWaitingForMaintenance() throws SQLException {
+        dataSource = refreshedDataSource(url + "&connectionStatus=OK&minIdlePerServer=1");
+
+        wsrepReady.put("A:3306", "OFF");
+        monitor().refresh().join();
+        monitor().refresh().join();
+
+        assertThat(dataSource.serverPool("A:3306").get().isUsable()).isFalse();
+        assertThat(dataSource.serverPool("A:3306").get().idleCount()).isEqualTo(0);
+        assertThat(dataSource.serverPool("B:3306").get().isUsable()).isTrue();
+    }
+
+    @Test
+    public void failsWhenNoConnectionIsReturnedInTime() throws SQLException {
+        dataSource = refreshedDataSource(url.replace("maxPoolSize=3", "maxPoolSize=1"));
+        dataSource.getConnection();
+
+        try {
+            dataSource.getConnection();
+            fail("pool should be exhausted");
+        } catch (SQLTransientConnectionException e) {
+            assertThat(e.getMessage()).contains("50ms");
+        }
+    }
+
+    @Test
+    public void rollsBackTransactionLeftOpenWhenConnectionIsReturned() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=0");
+        Connection connection = dataSource.getConnection();
+        Connection real = connection.unwrap(RealConnection.class);
+        when(real.getAutoCommit()).thenReturn(false);
+
+        connection.close();
+
+        verify(real).rollback();
+        verify(real).setAutoCommit(true);
+    }
+
+    @Test
+    public void restoresSessionSettingsChangedByBorrower() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=0");
+        Connection connection = dataSource.getConnection();
+        Connection real = connection.unwrap(RealConnection.class);
+
+        connection.setReadOnly(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setCatalog("other");
+        connection.close();
+
+        verify(real).setReadOnly(false);
+        verify(real).setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        verify(real).setCatalog("db");
+        verify(real, never()).setSchema(anyString());
+        assertThat(dataSource.getConnection().unwrap(RealConnection.class)).isSameAs(real);
+    }
+
+    @Test
+    public void doesNotReuseConnectionWhoseSettingsCanNotBeRestored() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=0");
+        Connection connection = dataSource.getConnection();
+        Connection real = connection.unwrap(RealConnection.class);
+
+        connection.setNetworkTimeout(Runnable::run, 1000);
+        connection.close();
+
+        verify(real).close();
+        assertThat(dataSource.totalConnections()).isEqualTo(0);
+    }
+
+    @Test
+    public void closesConnectionsWhenDataSourceIsClosed() throws SQLException {
+        dataSource = refreshedDataSource(url + "&minIdlePerServer=1");
+        Connection inUse = dataSource.getConnection();
+
+        dataSource.close();
+        inUse.close();
+
+        assertThat(dataSource.totalConnections()).isEqualTo(0);
+    }
+
+    @Test(expected = SQLFeatureNotSupportedException.class)
+    public void replicationUrlsAreNotSupported() throws SQLException {
+        new MysclusconDataSource(driver, "jdbc:myscluscon:mysql:replication://M,A/db", new Properties(), Mockito.mock(ScheduledExecutorService.class));
+    }
+
+    private MysclusconDataSource refreshedDataSource(String jdbcUrl) throws SQLException {
+        this.jdbcUrl = jdbcUrl;
+        wsrepReady.putIfAbsent("A:3306", "ON");
+        wsrepReady.putIfAbsent("B:3306", "ON");
+        MysclusconDataSource dataSource = new MysclusconDataSource(driver, jdbcUrl, new Properties(), Mockito.mock(ScheduledExecutorService.class));
+        refresh(dataSource);
+        return dataSource;
+    }
+
+    /**
+     * Health monitor is started by first maintenance, and refreshed here instead of waiting for its background refresh.
+     * Refresh started by scheduler may have started before changes made by test, so it is waited for before refreshing again.
+     */
+    private void refresh(MysclusconDataSource dataSource) throws SQLException {
+        dataSource.maintain();
+        ClusterHealthMonitor monitor = monitor();
+        monitor.refresh().join();
+        monitor.refresh().join();
+        dataSource.maintain();
+    }
+
+    private ClusterHealthMonitor monitor() throws SQLException {
+        ConnectionSettings settings = driver.settings(jdbcUrl);
+        return driver.cluster(settings).existingHealthMonitor(settings.urlInfo);
+    }
+
+    private Connection galeraConnection(String server) throws SQLException {
+        Connection connection = Mockito.mock(RealConnection.class, server);
+        Statement statement = Mockito.mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_REPEATABLE_READ);
+        when(connection.getCatalog()).thenReturn("db");
+        when(statement.executeQuery(galeraStatusQuery)).thenAnswer(invocation -> {
+            ResultSet resultSet = Mockito.mock(ResultSet.class);
+            AtomicBoolean onRow = new AtomicBoolean();
+            when(resultSet.next()).thenAnswer(next -> !onRow.getAndSet(true));
+            when(resultSet.getString("Variable_name")).thenReturn("wsrep_ready");
+            when(resultSet.getString("Value")).thenReturn(wsrepReady.get(server));
+            return resultSet;
+        });
+        return connection;
+    }
+}
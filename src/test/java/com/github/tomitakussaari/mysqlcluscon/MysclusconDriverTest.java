@@ -8,10 +8,21 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.assertj.core.api.Assertions.*;
@@ -19,6 +30,9 @@ import static org.assertj.core.api.Assertions.*;
 @RunWith(MockitoJUnitRunner.class)
 public class MysclusconDriverTest {
 
+    private static final String galeraStatusQuery = "SHOW STATUS WHERE Variable_name IN " +
+            "('wsrep_ready', 'wsrep_local_state_comment', 'wsrep_local_recv_queue', 'wsrep_flow_control_paused')";
+
     @Mock
     private Connection mockConn;
     @Mock
@@ -27,7 +41,8 @@ public class MysclusconDriverTest {
     private ResultSet mockResultSet;
 
     private ConnectURLStoringDriver driver = new ConnectURLStoringDriver();
-    private ConnectionExpectingDriver configurableDriver = new ConnectionExpectingDriver();
+    private ClusterRegistry clusterRegistry = new ClusterRegistry();
+    private ConnectionExpectingDriver configurableDriver = new ConnectionExpectingDriver(clusterRegistry);
 
     @Test
     public void galeraCluster() throws SQLException {
@@ -42,9 +57,11 @@ public class MysclusconDriverTest {
 
     private void mockGaleraHealthChek() throws SQLException {
         when(mockConn.createStatement()).thenReturn(mockStatement);
-        when(mockConn.isValid(anyInt())).thenReturn(true);
-        when(mockStatement.executeQuery("SHOW STATUS like 'wsrep_ready'")).thenReturn(mockResultSet);
-        when(mockResultSet.next()).thenReturn(true);
+        when(mockStatement.getConnection()).thenReturn(mockConn);
+        when(mockStatement.executeQuery(galeraStatusQuery)).thenReturn(mockResultSet);
+        AtomicBoolean onRow = new AtomicBoolean();
+        when(mockResultSet.next()).thenAnswer(invocation -> !onRow.getAndSet(!onRow.get()));
+        when(mockResultSet.getString("Variable_name")).thenReturn("wsrep_ready");
         when(mockResultSet.getString("Value")).thenReturn("ON");
     }
 
@@ -83,7 +100,6 @@ public class MysclusconDriverTest {
 
     private void mockMysqlReadClusterHealthCheck() throws SQLException {
         when(mockConn.createStatement()).thenReturn(mockStatement);
-        when(mockConn.isValid(anyInt())).thenReturn(true);
         when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenReturn(mockResultSet);
         when(mockResultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(mockResultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
@@ -94,8 +110,10 @@ public class MysclusconDriverTest {
     @Test
     public void triesNodesUntilFindsWorkingOneWhenMysqlCluster() throws SQLException {
         when(mockConn.createStatement()).thenReturn(mockStatement);
-        when(mockConn.isValid(anyInt())).thenReturn(false).thenReturn(false).thenReturn(true);
-        when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenReturn(mockResultSet);
+        when(mockStatement.executeQuery("SHOW SLAVE STATUS"))
+                .thenThrow(new SQLException("Communications link failure"))
+                .thenThrow(new SQLException("Communications link failure"))
+                .thenReturn(mockResultSet);
         when(mockResultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(mockResultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
         when(mockResultSet.getInt("Seconds_Behind_Master")).thenReturn(0);
@@ -110,7 +128,6 @@ public class MysclusconDriverTest {
     @Test
     public void closesRealConnectionIfValidityCheckThrowsExceptionDuringConnectionOpening() throws SQLException {
         when(mockConn.createStatement()).thenReturn(mockStatement);
-        when(mockConn.isValid(anyInt())).thenReturn(true);
         when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenThrow(new RuntimeException("Foobar"));
         try {
             driver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234/?foo=bar&bar=foo", new Properties());
@@ -256,14 +273,304 @@ public class MysclusconDriverTest {
         configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234,C:1234/?foo=bar&bar=foo", new Properties());
     }
 
+    @Test
+    public void parallelProbeReturnsOkConnectionAndClosesOthers() throws SQLException {
+        Connection lagging = expectConnection("jdbc:mysql://B:1234/?probeMode=parallel&connectTimeout=500", "lagging", 3, true, true);
+        expectConnection("jdbc:mysql://A:1234/?probeMode=parallel&connectTimeout=500", "valid", 0, true, true);
+        Connection stopped = expectConnection("jdbc:mysql://C:1234/?probeMode=parallel&connectTimeout=500", "stopped", 0, true, false);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234,C:1234/?probeMode=parallel", new Properties());
+        assertEquals("valid", connection.toString());
+        verify(lagging, timeout(1000)).close();
+        verify(stopped, timeout(1000)).close();
+    }
+
+    @Test
+    public void parallelProbeFallsBackToBestConnectionWhenNoneIsOk() throws SQLException {
+        expectConnection("jdbc:mysql://B:1234/?probeMode=parallel&probeParallelism=2&connectTimeout=500", "lagging", 3, true, true);
+        Connection stopped = expectConnection("jdbc:mysql://A:1234/?probeMode=parallel&probeParallelism=2&connectTimeout=500", "stopped", 0, true, false);
+        expectConnection("jdbc:mysql://C:1234/?probeMode=parallel&probeParallelism=2&connectTimeout=500", "broken", 0, false, true);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234,C:1234/?probeMode=parallel&probeParallelism=2", new Properties());
+        assertEquals("lagging", connection.toString());
+        verify(stopped).close();
+        assertThat(configurableDriver.blackListedServers()).containsExactly("C:1234");
+    }
+
+    @Test
+    public void hedgedProbeReturnsOkConnection() throws SQLException {
+        expectConnection("jdbc:mysql://A:1234/?probeMode=hedged&hedgeAfterMs=10&connectTimeout=500", "valid", 0, true, true);
+        expectConnection("jdbc:mysql://B:1234/?probeMode=hedged&hedgeAfterMs=10&connectTimeout=500", "broken", 0, false, true);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234/?probeMode=hedged&hedgeAfterMs=10", new Properties());
+        assertEquals("valid", connection.toString());
+    }
+
+    @Test
+    public void connectAsyncReturnsOkConnectionAndClosesOthers() throws Exception {
+        CountDownLatch laggingOpened = new CountDownLatch(1);
+        Connection lagging = expectConnection("jdbc:mysql://B:1234/?probeMode=parallel&connectTimeout=500", "lagging", 3, true, true);
+        expectConnection("jdbc:mysql://B:1234/?probeMode=parallel&connectTimeout=500", () -> {
+            laggingOpened.countDown();
+            return lagging;
+        });
+        Connection valid = expectConnection("jdbc:mysql://A:1234/?probeMode=parallel&connectTimeout=500", "valid", 0, true, true);
+        expectConnection("jdbc:mysql://A:1234/?probeMode=parallel&connectTimeout=500", () -> {
+            try {
+                laggingOpened.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return valid;
+        });
+
+        Connection connection = configurableDriver.connectAsync("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234/?probeMode=parallel", new Properties())
+                .get(1, TimeUnit.SECONDS);
+        assertEquals("valid", connection.toString());
+        verify(lagging, timeout(1000)).close();
+    }
+
+    @Test
+    public void connectAsyncFailsWhenNoValidHostIsFound() throws Exception {
+        expectConnection("jdbc:mysql://A:1234/?connectTimeout=500", "broken", 0, false, true);
+        try {
+            configurableDriver.connectAsync("jdbc:myscluscon:mysql:read_cluster://A:1234/", new Properties()).get(1, TimeUnit.SECONDS);
+            fail("should have failed when connecting to non-working server");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(SQLException.class)
+                    .hasMessage("Unable to open connection, no valid host found from servers: [A:1234]");
+        }
+        assertThat(configurableDriver.blackListedServers()).containsExactly("A:1234");
+    }
+
+    @Test
+    public void connectAsyncTimesOutAndClosesConnectionFoundTooLate() throws Exception {
+        CountDownLatch slowServer = new CountDownLatch(1);
+        Connection slow = expectConnection("jdbc:mysql://A:1234/?connectionWaitMs=50&connectTimeout=500", "slow", 0, true, true);
+        expectConnection("jdbc:mysql://A:1234/?connectionWaitMs=50&connectTimeout=500", () -> {
+            try {
+                slowServer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return slow;
+        });
+        CompletableFuture<Connection> connection = configurableDriver.connectAsync("jdbc:myscluscon:mysql:read_cluster://A:1234/?connectionWaitMs=50", new Properties());
+        try {
+            connection.get(1, TimeUnit.SECONDS);
+            fail("should have timed out");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(SQLTimeoutException.class);
+        } finally {
+            slowServer.countDown();
+        }
+        verify(slow, timeout(1000)).close();
+    }
+
+    @Test
+    public void connectAsyncFailsForUnknownUrl() {
+        assertThat(configurableDriver.connectAsync("jdbc:mysql://A:1234/", new Properties())).isCompletedExceptionally();
+    }
+
+    @Test
+    public void usesStatusFromHealthMonitorInsteadOfCheckingNewConnection() throws Exception {
+        mockGaleraHealthChek();
+        String url = "jdbc:myscluscon:galera:cluster://A:1234/?healthCheckIntervalMs=60000";
+
+        driver.connect(url, new Properties());
+        waitUntil(() -> driver.monitoredStatuses(url).get("A:1234") == ConnectionStatus.OK);
+        Mockito.reset(mockStatement);
+
+        Connection connection = driver.connect(url, new Properties());
+        assertThat(connection).isNotNull();
+        verify(mockStatement, never()).executeQuery(anyString());
+    }
+
+    @Test
+    public void connectionRefusesNewStatementsWhenHealthMonitorSeesServerStopped() throws Exception {
+        mockGaleraHealthChek();
+        String url = "jdbc:myscluscon:galera:cluster://A:1234/?healthCheckIntervalMs=60000&connectionStatus=OK";
+        driver.connect(url, new Properties());
+        waitUntil(() -> driver.monitoredStatuses(url).get("A:1234") == ConnectionStatus.OK);
+        Connection connection = driver.connect(url, new Properties());
+        connection.createStatement();
+
+        when(mockResultSet.getString("Value")).thenReturn("OFF");
+        ConnectionSettings settings = driver.settings(url);
+        ClusterHealthMonitor monitor = driver.cluster(settings).existingHealthMonitor(settings.urlInfo);
+        waitUntil(() -> {
+            monitor.refresh().join();
+            return driver.monitoredStatuses(url).get("A:1234") == ConnectionStatus.STOPPED;
+        });
+
+        try {
+            connection.createStatement();
+            fail("statement should not be created to stopped server");
+        } catch (SQLTransientConnectionException e) {
+            assertThat(e.getMessage()).contains("STOPPED");
+        }
+    }
+
+    @Test
+    public void isValidUsesCachedStatusWhenValidationCacheIsEnabled() throws SQLException {
+        mockGaleraHealthChek();
+
+        Connection first = driver.connect("jdbc:myscluscon:galera:cluster://A:1234/?validationCacheMs=60000", new Properties());
+        Connection second = driver.connect("jdbc:myscluscon:galera:cluster://A:1234/?validationCacheMs=60000", new Properties());
+        Mockito.reset(mockStatement);
+        when(mockStatement.executeQuery(galeraStatusQuery)).thenReturn(mockResultSet);
+
+        assertThat(first.isValid(1)).isTrue();
+        assertThat(second.isValid(1)).isTrue();
+        assertThat(first.isValid(1)).isTrue();
+        verify(mockStatement, times(1)).executeQuery(galeraStatusQuery);
+    }
+
+    @Test
+    public void connectsToServersDiscoveredFromCluster() throws Exception {
+        mockGaleraHealthChek();
+        ResultSet addresses = Mockito.mock(ResultSet.class);
+        when(mockStatement.executeQuery("SHOW STATUS LIKE 'wsrep_incoming_addresses'")).thenReturn(addresses);
+        when(addresses.next()).thenReturn(true);
+        when(addresses.getString("Value")).thenReturn("A:1234,D:1234");
+        ConnectURLStoringDriver discoveringDriver = new ConnectURLStoringDriver(clusterRegistry);
+        String url = "jdbc:myscluscon:mysql:galera://A:1234/?discoveryIntervalMs=60000";
+
+        discoveringDriver.connect(url, new Properties());
+        ClusterState cluster = clusterRegistry.cluster("MYSQL_GALERA://a:1234");
+        waitUntil(() -> cluster.topology.discoveredServers().contains("D:1234"));
+        clusterRegistry.serverBlackList.blackList("A:1234");
+        discoveringDriver.connectUrls.clear();
+
+        assertThat(discoveringDriver.connect(url, new Properties())).isNotNull();
+        assertThat(discoveringDriver.connectUrls).containsExactly("jdbc:mysql://D:1234/?discoveryIntervalMs=60000&connectTimeout=500");
+    }
+
+    @Test
+    public void triesServerKnownToHaveExecutedRequiredGtidSetFirst() throws SQLException {
+        ClusterState cluster = clusterRegistry.cluster("MYSQL_READ_CLUSTER://a:1234,b:1234");
+        cluster.replicationPositions.record("B:1234", CheckResult.of(ConnectionStatus.OK, 0).withExecutedGtidSet(GtidSet.parse("3e11fa47-71ca-11e1-9e33-c80aa9429562:1-10")));
+        expectConnection("jdbc:mysql://B:1234/?connectTimeout=500", "B", 0, true, true);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234/", requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"));
+        assertEquals("B", connection.toString());
+    }
+
+    @Test
+    public void failsAndClosesConnectionWhenServerHasNotExecutedRequiredGtidSet() throws SQLException {
+        Connection real = expectConnection("jdbc:mysql://A:1234/?connectTimeout=500", "A", 0, true, true);
+
+        try {
+            configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234/", requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"));
+            fail("should not connect");
+        } catch (SQLTransientConnectionException e) {
+            assertThat(e.getMessage()).contains("A:1234");
+        }
+        verify(real).close();
+    }
+
+    @Test
+    public void waitsForServerToExecuteRequiredGtidSet() throws SQLException {
+        Connection real = expectConnection("jdbc:mysql://A:1234/?gtidWaitMs=500&connectTimeout=500", "A", 0, true, true);
+        PreparedStatement wait = expectGtidWait(real, 0);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234/?gtidWaitMs=500", requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"));
+        assertEquals("A", connection.toString());
+        verify(wait).setString(1, "3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+        verify(wait).setDouble(2, 0.5);
+    }
+
+    @Test
+    public void triesNextServerWhenServerHasNotExecutedRequiredGtidSet() throws Exception {
+        String url = "jdbc:myscluscon:mysql:read_cluster://A:1234,B:1234/?gtidWaitMs=500&serverSelection=LEAST_CONNECTIONS";
+        clusterRegistry.cluster("MYSQL_READ_CLUSTER://a:1234,b:1234").openConnections.opened("B:1234");
+
+        Connection behind = expectOnlyBToHaveExecutedRequiredGtidSet();
+        assertEquals("B", configurableDriver.connect(url, requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5")).toString());
+        verify(behind).close();
+
+        Connection behindForAsync = expectOnlyBToHaveExecutedRequiredGtidSet();
+        assertEquals("B", configurableDriver.connectAsync(url, requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"))
+                .get(1, TimeUnit.SECONDS).toString());
+        verify(behindForAsync).close();
+        assertThat(configurableDriver.blackListedServers()).isEmpty();
+    }
+
+    private Connection expectOnlyBToHaveExecutedRequiredGtidSet() throws SQLException {
+        Connection behind = expectConnection("jdbc:mysql://A:1234/?gtidWaitMs=500&serverSelection=LEAST_CONNECTIONS&connectTimeout=500", "A", 0, true, true);
+        expectGtidWait(behind, 1);
+        expectGtidWait(expectConnection("jdbc:mysql://B:1234/?gtidWaitMs=500&serverSelection=LEAST_CONNECTIONS&connectTimeout=500", "B", 0, true, true), 0);
+        return behind;
+    }
+
+    private static PreparedStatement expectGtidWait(Connection real, int result) throws SQLException {
+        PreparedStatement wait = Mockito.mock(PreparedStatement.class);
+        ResultSet waitResult = Mockito.mock(ResultSet.class);
+        when(real.prepareStatement("SELECT WAIT_FOR_EXECUTED_GTID_SET(?, ?)")).thenReturn(wait);
+        when(wait.executeQuery()).thenReturn(waitResult);
+        when(waitResult.next()).thenReturn(true);
+        when(waitResult.getInt(1)).thenReturn(result);
+        return wait;
+    }
+
+    @Test
+    public void replicationConnectionUsesMasterAndReplicaByReadOnlyMode() throws SQLException {
+        expectConnection("jdbc:mysql://M:3306/database?connectTimeout=500", "M", 0, true, true);
+        expectConnection("jdbc:mysql://A:3306/database?connectTimeout=500&discoverFrom=M:3306", "A", 0, true, true);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:replication://M,A/database", new Properties());
+        assertThat(connection.toString()).contains("M");
+        connection.setReadOnly(true);
+        assertThat(connection.toString()).contains("A");
+        connection.setReadOnly(false);
+        assertThat(connection.toString()).contains("M");
+    }
+
+    @Test
+    public void replicationConnectionCanBeOpenedAsynchronously() throws Exception {
+        expectConnection("jdbc:mysql://M:3306/database?connectTimeout=500", "M", 0, true, true);
+        expectConnection("jdbc:mysql://A:3306/database?connectTimeout=500&discoverFrom=M:3306", "A", 0, true, true);
+
+        Connection connection = configurableDriver.connectAsync("jdbc:myscluscon:mysql:replication://M,A/database", requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"))
+                .get(1, TimeUnit.SECONDS);
+        assertThat(connection.toString()).contains("M");
+    }
+
+    @Test
+    public void replicationMasterIsNotRequiredToHaveExecutedRequiredGtidSet() throws SQLException {
+        expectConnection("jdbc:mysql://M:3306/database?connectTimeout=500", "M", 0, true, true);
+
+        Connection connection = configurableDriver.connect("jdbc:myscluscon:mysql:replication://M,A/database", requiredGtidSet("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5"));
+        assertThat(connection.toString()).contains("M");
+    }
+
+    private static Properties requiredGtidSet(String gtidSet) {
+        Properties info = new Properties();
+        info.setProperty("requiredGtidSet", gtidSet);
+        return info;
+    }
+
+    private static void waitUntil(Callable<Boolean> condition) throws Exception {
+        long waitUntil = System.currentTimeMillis() + 1000;
+        while(!condition.call()) {
+            if(System.currentTimeMillis() > waitUntil) {
+                fail("condition was not met in time");
+            }
+            Thread.sleep(10);
+        }
+    }
+
     private Connection expectConnection(String url, String name, Integer secondsBehindMaster, boolean isValid, boolean running) throws SQLException {
         Connection connection = Mockito.mock(Connection.class, name);
         Statement mockStatement = Mockito.mock(Statement.class, name);
         ResultSet mockResultSet = Mockito.mock(ResultSet.class, name);
 
         when(connection.createStatement()).thenReturn(mockStatement);
-        when(connection.isValid(anyInt())).thenReturn(isValid);
-        when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenReturn(mockResultSet);
+        if(isValid) {
+            when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenReturn(mockResultSet);
+        } else {
+            when(mockStatement.executeQuery("SHOW SLAVE STATUS")).thenThrow(new SQLException("Communications link failure"));
+        }
         when(mockResultSet.getObject("Slave_IO_Running")).thenReturn(running ? "Yes" : "No");
         when(mockResultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
         when(mockResultSet.getInt("Seconds_Behind_Master")).thenReturn(secondsBehindMaster);
@@ -276,13 +583,13 @@ public class MysclusconDriverTest {
     @Test
     public void findsOkConnection() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.OK));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.BEHIND));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.BEHIND));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.OK));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.BEHIND));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.BEHIND));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
         Collections.shuffle(connections);
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.STOPPED);
         assertEquals(ConnectionStatus.OK, bestConnection.get().getStatus());
@@ -291,9 +598,9 @@ public class MysclusconDriverTest {
     @Test
     public void findsLaggingConnectionWhenItIsBest() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.BEHIND));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.BEHIND));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
         Collections.shuffle(connections);
 
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.STOPPED);
@@ -303,9 +610,9 @@ public class MysclusconDriverTest {
     @Test
     public void doesNotReturnLaggingConnectionWhenWeWantAtleastOk() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.BEHIND));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.BEHIND));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
         Collections.shuffle(connections);
 
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.OK);
@@ -315,9 +622,9 @@ public class MysclusconDriverTest {
     @Test
     public void returnsLaggingConnectionWhenWeWantAtleastitAndItIsBestAvailable() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.BEHIND));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.BEHIND));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
         Collections.shuffle(connections);
 
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.BEHIND);
@@ -327,8 +634,8 @@ public class MysclusconDriverTest {
     @Test
     public void findsStoppedConnectionWhenItIsBest() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.STOPPED));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.STOPPED));
         Collections.shuffle(connections);
 
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.STOPPED);
@@ -338,7 +645,7 @@ public class MysclusconDriverTest {
     @Test
     public void doesNotReturnDeadConnection() {
         List<ConnectionInfo> connections = new ArrayList<>();
-        connections.add(new ConnectionInfo(null, (conn, t) -> ConnectionStatus.DEAD));
+        connections.add(new ConnectionInfo("A:3306", null, (conn, t) -> ConnectionStatus.DEAD));
 
         Optional<ConnectionInfo> bestConnection = driver.findBestConnection(connections, ConnectionStatus.STOPPED);
         assertThat(bestConnection.isPresent()).isFalse();
@@ -385,6 +692,39 @@ public class MysclusconDriverTest {
         assertEquals(configurableDriver.connectionsToConnect.toString(), 1, configurableDriver.connectionsToConnect.size());
     }
 
+    @Test
+    public void driverInstancesWithSameRegistryShareBlackList() throws SQLException {
+        ClusterRegistry clusterRegistry = new ClusterRegistry();
+        ConnectionExpectingDriver firstDriver = new ConnectionExpectingDriver(clusterRegistry);
+        ConnectionExpectingDriver secondDriver = new ConnectionExpectingDriver(clusterRegistry);
+        firstDriver.connectionsToConnect.put("jdbc:mysql://A:1234/?connectTimeout=500", () -> {
+            throw new RuntimeException("Cannot open connection");
+        });
+        try {
+            firstDriver.connect("jdbc:myscluscon:mysql:read_cluster://A:1234/", new Properties());
+            fail("should have thrown SQLException when connecting to non-working server");
+        } catch (SQLException e) {
+            assertThat(secondDriver.blackListedServers()).containsExactly("A:1234");
+        }
+    }
+
+    @Test
+    public void countsOpenConnectionsOfEachServer() throws SQLException {
+        String url = "jdbc:myscluscon:mysql:read_cluster://A:1234/";
+        ClusterState cluster = clusterRegistry.cluster(ClusterRegistry.clusterKey(URLHelpers.parse(url)));
+        expectConnection("jdbc:mysql://A:1234/?connectTimeout=500", "first", 0, true, true);
+        Connection first = configurableDriver.connect(url, new Properties());
+        expectConnection("jdbc:mysql://A:1234/?connectTimeout=500", "second", 0, true, true);
+        Connection second = configurableDriver.connect(url, new Properties());
+        assertEquals(2, cluster.openConnections.count("A:1234"));
+
+        first.close();
+        first.close();
+        assertEquals(1, cluster.openConnections.count("A:1234"));
+        second.close();
+        assertEquals(0, cluster.openConnections.count("A:1234"));
+    }
+
     @Test
     public void parentLoggerIsReturned() {
         assertThat(driver.getParentLogger()).isNotNull();
@@ -400,7 +740,15 @@ public class MysclusconDriverTest {
     }
 
     class ConnectURLStoringDriver extends MysclusconDriver {
-        final List<String> connectUrls = new ArrayList<>();
+        final List<String> connectUrls = Collections.synchronizedList(new ArrayList<>());
+
+        ConnectURLStoringDriver() {
+            this(new ClusterRegistry());
+        }
+
+        ConnectURLStoringDriver(ClusterRegistry clusterRegistry) {
+            super(clusterRegistry);
+        }
 
         @Override
         protected Connection openRealConnection(Properties info, String connectUrl) throws SQLException {
@@ -410,7 +758,15 @@ public class MysclusconDriverTest {
     }
 
     static class ConnectionExpectingDriver extends MysclusconDriver {
-        final Map<String, Supplier<Connection>> connectionsToConnect = new HashMap<>();
+        final Map<String, Supplier<Connection>> connectionsToConnect = new ConcurrentHashMap<>();
+
+        ConnectionExpectingDriver() {
+            this(new ClusterRegistry());
+        }
+
+        ConnectionExpectingDriver(ClusterRegistry clusterRegistry) {
+            super(clusterRegistry);
+        }
 
         @Override
         protected Connection openRealConnection(Properties info, String connectUrl) throws SQLException {
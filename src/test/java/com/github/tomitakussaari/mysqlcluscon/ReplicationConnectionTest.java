@@ -0,0 +1,184 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicationConnectionTest {
+
+    private final MysclusconConnection master = Mockito.mock(MysclusconConnection.class);
+    private final MysclusconConnection replica = Mockito.mock(MysclusconConnection.class);
+    private final AtomicInteger replicasOpened = new AtomicInteger();
+    private final Connection connection = ReplicationConnection.of(master, () -> {
+        replicasOpened.incrementAndGet();
+        return replica;
+    });
+
+    @Test
+    public void usesMasterUntilSetReadOnly() throws SQLException {
+        Statement statement = Mockito.mock(Statement.class);
+        when(master.createStatement()).thenReturn(statement);
+
+        assertThat(connection.createStatement()).isSameAs(statement);
+        assertThat(connection.isReadOnly()).isFalse();
+        assertThat(replicasOpened.get()).isZero();
+    }
+
+    @Test
+    public void routesReadOnlyWorkToReplica() throws SQLException {
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        when(replica.prepareStatement("SELECT 1")).thenReturn(statement);
+
+        connection.setReadOnly(true);
+
+        assertThat(connection.prepareStatement("SELECT 1")).isSameAs(statement);
+        assertThat(connection.isReadOnly()).isTrue();
+        verify(replica).setReadOnly(true);
+        verify(master, never()).prepareStatement("SELECT 1");
+    }
+
+    @Test
+    public void returnsToMasterWhenNoLongerReadOnly() throws SQLException {
+        connection.setReadOnly(true);
+        connection.setReadOnly(false);
+        connection.commit();
+
+        verify(master).setReadOnly(false);
+        verify(master).commit();
+        verify(replica, never()).commit();
+    }
+
+    @Test
+    public void reusesReplicaConnection() throws SQLException {
+        connection.setReadOnly(true);
+        connection.setReadOnly(false);
+        connection.setReadOnly(true);
+        assertThat(replicasOpened.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void usesMasterForReadOnlyWorkWhenNoReplicaIsAvailable() throws SQLException {
+        Connection withoutReplicas = ReplicationConnection.of(master, () -> {
+            throw new SQLException("Unable to open connection, no valid host found from servers: []");
+        });
+        Statement statement = Mockito.mock(Statement.class);
+        when(master.createStatement()).thenReturn(statement);
+
+        withoutReplicas.setReadOnly(true);
+
+        assertThat(withoutReplicas.createStatement()).isSameAs(statement);
+        verify(master).setReadOnly(true);
+    }
+
+    @Test
+    public void appliesSessionSettingsToBothConnections() throws SQLException {
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        connection.setReadOnly(true);
+        connection.setCatalog("other");
+
+        verify(master).setAutoCommit(false);
+        verify(replica).setAutoCommit(false);
+        verify(replica).setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        verify(master).setCatalog("other");
+        verify(replica).setCatalog("other");
+    }
+
+    @Test
+    public void readOnlyModeCanNotBeChangedInMiddleOfTransaction() throws SQLException {
+        when(master.getAutoCommit()).thenReturn(false);
+        connection.setAutoCommit(false);
+        connection.createStatement();
+        try {
+            connection.setReadOnly(true);
+            fail("read only mode was changed in middle of transaction");
+        } catch (SQLException e) {
+            assertThat(e.getSQLState()).isEqualTo(ReplicationConnection.invalidTransactionStateSqlState);
+        }
+        connection.commit();
+        connection.setReadOnly(true);
+        assertThat(connection.isReadOnly()).isTrue();
+    }
+
+    @Test
+    public void readOnlyModeCanBeChangedBetweenStatementsInAutoCommitMode() throws SQLException {
+        when(master.getAutoCommit()).thenReturn(true);
+        connection.createStatement();
+        connection.setReadOnly(true);
+        assertThat(connection.isReadOnly()).isTrue();
+    }
+
+    @Test
+    public void closesBothConnections() throws SQLException {
+        connection.setReadOnly(true);
+        connection.close();
+
+        verify(master).close();
+        verify(replica).close();
+        assertThat(connection.isClosed()).isTrue();
+    }
+
+    @Test
+    public void isValidOnlyWhenBothOpenConnectionsAreValid() throws SQLException {
+        when(master.isValid(1)).thenReturn(true);
+        assertThat(connection.isValid(1)).isTrue();
+
+        connection.setReadOnly(true);
+        assertThat(connection.isValid(1)).isFalse();
+        when(replica.isValid(1)).thenReturn(true);
+        assertThat(connection.isValid(1)).isTrue();
+
+        connection.setReadOnly(false);
+        when(replica.isValid(1)).thenReturn(false);
+        assertThat(connection.isValid(1)).isFalse();
+    }
+
+    @Test
+    public void unwrapsToItselfRegardlessOfReadOnlyMode() throws SQLException {
+        ReplicationConnection unwrapped = connection.unwrap(ReplicationConnection.class);
+        connection.setReadOnly(true);
+
+        assertThat(connection.unwrap(ReplicationConnection.class)).isSameAs(unwrapped).isSameAs(connection);
+        assertThat(connection.isWrapperFor(ReplicationConnection.class)).isTrue();
+    }
+
+    @Test
+    public void requiresOpenReplicaToHaveExecutedGtidSet() throws SQLException {
+        connection.setReadOnly(true);
+
+        connection.unwrap(ReplicationConnection.class).requireAtLeast("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+
+        verify(replica).requireAtLeast("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+        verify(master, never()).requireAtLeast("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+    }
+
+    @Test
+    public void usesMasterForReadOnlyWorkWhenReplicaOpenedLaterHasNotExecutedRequiredGtidSet() throws SQLException {
+        Mockito.doThrow(new SQLTransientConnectionException("not executed")).when(replica).requireAtLeast("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+        connection.unwrap(ReplicationConnection.class).requireAtLeast("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+
+        connection.setReadOnly(true);
+
+        verify(replica).close();
+        verify(master).setReadOnly(true);
+        assertThat(connection.isReadOnly()).isTrue();
+    }
+
+    @Test(expected = SQLException.class)
+    public void canNotBeUsedAfterClose() throws SQLException {
+        connection.close();
+        connection.createStatement();
+    }
+}
@@ -6,15 +6,17 @@ import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Supplier;
+import java.util.function.LongSupplier;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 public class ServerBlackListTest {
 
-    private Supplier<Long> nowSupplier = Mockito.mock(Supplier.class);
+    private LongSupplier nowSupplier = Mockito.mock(LongSupplier.class);
     private ServerBlackList serverBlackList;
 
     @Before
@@ -24,7 +26,7 @@ public class ServerBlackListTest {
 
     @Test
     public void filtersOutBlacklistedServers() {
-        when(nowSupplier.get()).thenReturn(System.currentTimeMillis());
+        when(nowSupplier.getAsLong()).thenReturn(System.currentTimeMillis());
         serverBlackList.blackList("server1.fi:3306");
         List<String> filteredList = serverBlackList.withoutBlackListed(Arrays.asList("server1.fi:3306", "server1.fi:3307"));
         assertEquals(1, filteredList.size());
@@ -33,7 +35,7 @@ public class ServerBlackListTest {
 
     @Test
     public void returnsCurrentlyBlacklistedServers() {
-        when(nowSupplier.get()).thenReturn(System.currentTimeMillis());
+        when(nowSupplier.getAsLong()).thenReturn(System.currentTimeMillis());
         assertTrue(serverBlackList.blackListed().isEmpty());
         serverBlackList.blackList("server1.fi:3306");
         assertTrue(serverBlackList.blackListed().contains("server1.fi:3306"));
@@ -41,9 +43,9 @@ public class ServerBlackListTest {
 
     @Test
     public void clearsOldEntriesFromBlackList() {
-        when(nowSupplier.get()).thenReturn(100 * 60 * 1000L);
+        when(nowSupplier.getAsLong()).thenReturn(100 * 60 * 1000L);
         serverBlackList.blackList("server1.fi:3306");
-        when(nowSupplier.get()).thenReturn(200 * 60 * 1000L);
+        when(nowSupplier.getAsLong()).thenReturn(200 * 60 * 1000L);
         List<String> filteredList = serverBlackList.withoutBlackListed(Arrays.asList("server1.fi:3306", "server1.fi:3307"));
         assertEquals(2, filteredList.size());
     }
@@ -58,4 +60,95 @@ public class ServerBlackListTest {
         filteredList = serverBlackListWithCurrentTime.withoutBlackListed(Arrays.asList("server1.fi:3306", "server1.fi:3307"));
         assertEquals(2, filteredList.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void returnsSameListWhenNothingIsBlackListed() {
+        when(nowSupplier.getAsLong()).thenReturn(1000L);
+        List<String> servers = Arrays.asList("server1.fi:3306", "server1.fi:3307");
+        assertSame(servers, serverBlackList.withoutBlackListed(servers));
+    }
+
+    @Test
+    public void doublesBlackListTimeOnRepeatedFailures() {
+        ServerBlackList backoffBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 1000);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 3000);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 7000);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 15000);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 25000);
+    }
+
+    @Test
+    public void failuresWhileBlackListedDoNotExtendBlackListTime() {
+        ServerBlackList backoffBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        backoffBlackList.blackList("server1.fi:3306");
+        when(nowSupplier.getAsLong()).thenReturn(500L);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 1000);
+    }
+
+    @Test
+    public void startsFromInitialBlackListTimeWhenServerHasStayedUp() {
+        ServerBlackList backoffBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 1000);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 3000);
+        when(nowSupplier.getAsLong()).thenReturn(20000L);
+        backoffBlackList.blackList("server1.fi:3306");
+        assertBlackListedUntil(backoffBlackList, 21000);
+    }
+
+    @Test
+    public void usesGivenBlackListTimes() {
+        ServerBlackList backoffBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        backoffBlackList.blackList("server1.fi:3306", 50, 80);
+        assertBlackListedUntil(backoffBlackList, 50);
+        backoffBlackList.blackList("server1.fi:3306", 50, 80);
+        assertBlackListedUntil(backoffBlackList, 130);
+    }
+
+    @Test
+    public void jitterOnlyExtendsBlackListTime() {
+        ServerBlackList jitteringBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0.5);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        jitteringBlackList.blackList("server1.fi:3306");
+        when(nowSupplier.getAsLong()).thenReturn(999L);
+        assertTrue(jitteringBlackList.blackListed().contains("server1.fi:3306"));
+        when(nowSupplier.getAsLong()).thenReturn(1500L);
+        assertTrue(jitteringBlackList.blackListed().isEmpty());
+    }
+
+    @Test
+    public void countsInsertionsAndRemovalsOnceToMetrics() {
+        DriverMetrics metrics = new DriverMetrics();
+        ServerBlackList countingBlackList = new ServerBlackList(nowSupplier, 1000, 10000, 0, metrics);
+        when(nowSupplier.getAsLong()).thenReturn(0L);
+        countingBlackList.blackList("server1.fi:3306");
+        countingBlackList.blackList("server1.fi:3306");
+        countingBlackList.withoutBlackListed(Arrays.asList("server1.fi:3306", "server2.fi:3306"));
+        assertEquals(1, metrics.getBlackListInsertions());
+        assertEquals(0, metrics.getBlackListRemovals());
+
+        when(nowSupplier.getAsLong()).thenReturn(1000L);
+        countingBlackList.withoutBlackListed(Arrays.asList("server1.fi:3306", "server2.fi:3306"));
+        countingBlackList.blackListed();
+        assertEquals(1, metrics.getBlackListRemovals());
+    }
+
+    private void assertBlackListedUntil(ServerBlackList blackList, long blackListedUntil) {
+        when(nowSupplier.getAsLong()).thenReturn(blackListedUntil - 1);
+        assertTrue(blackList.blackListed().contains("server1.fi:3306"));
+        when(nowSupplier.getAsLong()).thenReturn(blackListedUntil);
+        assertFalse(blackList.blackListed().contains("server1.fi:3306"));
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import java.util.OptionalDouble;
+
+import static org.junit.Assert.assertEquals;
+
+public class ServerLatenciesTest {
+
+    private final ServerLatencies serverLatencies = new ServerLatencies(0.5);
+
+    @Test
+    public void isEmptyWithoutSamples() {
+        assertEquals(OptionalDouble.empty(), serverLatencies.averageInNanos("A:3306"));
+    }
+
+    @Test
+    public void firstSampleIsTheAverage() {
+        serverLatencies.record("A:3306", 100);
+        assertEquals(OptionalDouble.of(100), serverLatencies.averageInNanos("A:3306"));
+    }
+
+    @Test
+    public void newSamplesMoveAverageByTheirWeight() {
+        serverLatencies.record("A:3306", 100);
+        serverLatencies.record("A:3306", 200);
+        assertEquals(OptionalDouble.of(150), serverLatencies.averageInNanos("A:3306"));
+        serverLatencies.record("A:3306", 50);
+        assertEquals(OptionalDouble.of(100), serverLatencies.averageInNanos("A:3306"));
+    }
+
+    @Test
+    public void keepsAveragesPerServer() {
+        serverLatencies.record("A:3306", 100);
+        serverLatencies.record("B:3306", 300);
+        assertEquals(OptionalDouble.of(100), serverLatencies.averageInNanos("A:3306"));
+        assertEquals(OptionalDouble.of(300), serverLatencies.averageInNanos("B:3306"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServerPoolTest {
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(1000);
+    private final ServerPool pool = new ServerPool("A:3306", totalConnections, 10000, 60000, 500, now::get);
+    private final MysclusconConnection first = Mockito.mock(MysclusconConnection.class);
+    private final MysclusconConnection second = Mockito.mock(MysclusconConnection.class);
+
+    @Test
+    public void borrowsMostRecentlyReturnedConnectionFirst() throws SQLException {
+        addIdle(first);
+        addIdle(second);
+
+        assertThat(borrowed()).isEqualTo(Optional.of(second));
+        assertThat(borrowed()).isEqualTo(Optional.of(first));
+        assertThat(borrowed()).isEqualTo(Optional.empty());
+        assertThat(pool.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void drainingClosesIdleConnectionsAndConnectionsReturnedAfterIt() throws SQLException {
+        addIdle(first);
+        ServerPool.Entry inUse = add(second);
+
+        pool.drain();
+        assertThat(borrowed()).isEqualTo(Optional.empty());
+        verify(first).close();
+        verify(second, never()).close();
+
+        pool.returned(inUse);
+        verify(second).close();
+        assertThat(pool.size()).isEqualTo(0);
+        assertThat(totalConnections.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void usablePoolKeepsReturnedConnections() throws SQLException {
+        ServerPool.Entry inUse = add(first);
+        pool.drain();
+        pool.markUsable();
+
+        pool.returned(inUse);
+
+        verify(first, never()).close();
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void discardsLeastRecentlyUsedIdleConnection() throws SQLException {
+        addIdle(first);
+        addIdle(second);
+
+        assertThat(pool.discardIdle()).isTrue();
+
+        verify(first).close();
+        assertThat(pool.size()).isEqualTo(1);
+        assertThat(totalConnections.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void validatesConnectionThatHasBeenIdleBeforeBorrowingIt() throws SQLException {
+        addIdle(first);
+        addIdle(second);
+        now.addAndGet(500);
+        when(second.isValid(ServerPool.validationTimeoutInSeconds)).thenReturn(false);
+        when(first.isValid(ServerPool.validationTimeoutInSeconds)).thenReturn(true);
+
+        assertThat(borrowed()).isEqualTo(Optional.of(first));
+        verify(second).close();
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotValidateConnectionThatWasJustReturned() throws SQLException {
+        addIdle(first);
+        now.addAndGet(499);
+
+        assertThat(borrowed()).isEqualTo(Optional.of(first));
+        verify(first, never()).isValid(ServerPool.validationTimeoutInSeconds);
+    }
+
+    @Test
+    public void closesConnectionsOlderThanMaxLifetime() throws SQLException {
+        ServerPool.Entry inUse = add(first);
+        addIdle(second);
+        now.addAndGet(60000);
+
+        pool.returned(inUse);
+        pool.discardExpired(1);
+
+        verify(first).close();
+        verify(second).close();
+        assertThat(pool.size()).isEqualTo(0);
+        assertThat(totalConnections.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void closesConnectionsIdleLongerThanIdleTimeoutExceptMinIdle() throws SQLException {
+        addIdle(first);
+        addIdle(second);
+        now.addAndGet(10000);
+
+        pool.discardExpired(1);
+
+        verify(first).close();
+        verify(second, never()).close();
+        assertThat(pool.idleCount()).isEqualTo(1);
+    }
+
+    private Optional<MysclusconConnection> borrowed() {
+        return pool.borrow().map(entry -> entry.connection);
+    }
+
+    private ServerPool.Entry add(MysclusconConnection connection) throws SQLException {
+        totalConnections.incrementAndGet();
+        return pool.added(connection);
+    }
+
+    private void addIdle(MysclusconConnection connection) throws SQLException {
+        pool.returned(add(connection));
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+
+public class ServerSelectionTest {
+
+    private final List<String> servers = Arrays.asList("A:3306", "B:3306", "C:3306");
+    private final ClusterState cluster = new ClusterState(new ServerBlackList());
+
+    @Test
+    public void parsesSelectionIgnoringCase() {
+        assertEquals(Optional.of(ServerSelection.LATENCY), ServerSelection.from("latency"));
+        assertEquals(Optional.of(ServerSelection.LEAST_LAG), ServerSelection.from("least_lag"));
+        assertEquals(Optional.empty(), ServerSelection.from("fastest"));
+    }
+
+    @Test
+    public void randomSelectionReturnsAllServers() {
+        assertThat(ServerSelection.RANDOM.getStrategy().order(servers, cluster)).containsOnly("A:3306", "B:3306", "C:3306").hasSize(3);
+    }
+
+    @Test
+    public void latencySelectionReturnsAllServers() {
+        cluster.serverLatencies.record("A:3306", 300);
+        cluster.serverLatencies.record("B:3306", 200);
+        assertThat(ServerSelection.LATENCY.getStrategy().order(servers, cluster)).containsOnly("A:3306", "B:3306", "C:3306").hasSize(3);
+    }
+
+    @Test
+    public void latencySelectionPrefersFasterOfTwoServers() {
+        cluster.serverLatencies.record("A:3306", 300);
+        cluster.serverLatencies.record("B:3306", 200);
+        for(int i = 0; i < 20; i++) {
+            assertEquals(Arrays.asList("B:3306", "A:3306"), ServerSelection.LATENCY.getStrategy().order(Arrays.asList("A:3306", "B:3306"), cluster));
+        }
+    }
+
+    @Test
+    public void latencySelectionNeverPicksSlowestServerFirst() {
+        cluster.serverLatencies.record("A:3306", 300);
+        cluster.serverLatencies.record("B:3306", 200);
+        cluster.serverLatencies.record("C:3306", 100);
+        for(int i = 0; i < 20; i++) {
+            assertThat(ServerSelection.LATENCY.getStrategy().order(servers, cluster).get(0)).isNotEqualTo("A:3306");
+        }
+    }
+
+    @Test
+    public void latencySelectionTriesServersWithoutSamplesFirst() {
+        cluster.serverLatencies.record("A:3306", 300);
+        assertEquals(Arrays.asList("B:3306", "A:3306"), ServerSelection.LATENCY.getStrategy().order(Arrays.asList("A:3306", "B:3306"), cluster));
+    }
+
+    @Test
+    public void leastLagSelectionPrefersClearlyLessLaggingServer() {
+        cluster.replicationLags.record("A:3306", CheckResult.of(ConnectionStatus.OK, 2));
+        cluster.replicationLags.record("B:3306", CheckResult.of(ConnectionStatus.BEHIND, 10));
+        cluster.replicationLags.record("C:3306", CheckResult.of(ConnectionStatus.OK, 0));
+        for(int i = 0; i < 20; i++) {
+            assertThat(ServerSelection.LEAST_LAG.getStrategy().order(servers, cluster).get(0)).isNotEqualTo("B:3306");
+            assertEquals(Arrays.asList("A:3306", "B:3306"), ServerSelection.LEAST_LAG.getStrategy().order(Arrays.asList("B:3306", "A:3306"), cluster));
+        }
+    }
+
+    @Test
+    public void leastLagSelectionSpreadsLoadOverServersWithSimilarLag() {
+        cluster.replicationLags.record("A:3306", CheckResult.of(ConnectionStatus.OK, 0));
+        cluster.replicationLags.record("B:3306", CheckResult.of(ConnectionStatus.OK, 1));
+        Set<String> firstServers = new HashSet<>();
+        for(int i = 0; i < 200; i++) {
+            firstServers.add(ServerSelection.LEAST_LAG.getStrategy().order(Arrays.asList("A:3306", "B:3306"), cluster).get(0));
+        }
+        assertThat(firstServers).containsOnly("A:3306", "B:3306");
+    }
+
+    @Test
+    public void leastLagSelectionTriesServersWithUnknownLagAfterOthers() {
+        cluster.replicationLags.record("A:3306", CheckResult.of(ConnectionStatus.STOPPED));
+        cluster.replicationLags.record("B:3306", CheckResult.of(ConnectionStatus.OK, 1));
+        for(int i = 0; i < 20; i++) {
+            assertThat(ServerSelection.LEAST_LAG.getStrategy().order(servers, cluster).get(0)).isNotEqualTo("A:3306");
+        }
+    }
+
+    @Test
+    public void lagBucketsDoubleInSize() {
+        assertEquals(0, LeastLagServerSelection.lagBucket(0));
+        assertEquals(0, LeastLagServerSelection.lagBucket(1));
+        assertEquals(1, LeastLagServerSelection.lagBucket(2));
+        assertEquals(1, LeastLagServerSelection.lagBucket(3));
+        assertEquals(2, LeastLagServerSelection.lagBucket(4));
+        assertEquals(3, LeastLagServerSelection.lagBucket(15));
+        assertEquals(62, LeastLagServerSelection.lagBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void leastConnectionsSelectionTriesServersWithLeastOpenConnectionsFirst() {
+        cluster.openConnections.opened("A:3306");
+        cluster.openConnections.opened("A:3306");
+        cluster.openConnections.opened("B:3306");
+        cluster.openConnections.opened("C:3306");
+        cluster.openConnections.opened("C:3306");
+        cluster.openConnections.closed("C:3306");
+        cluster.openConnections.closed("C:3306");
+        assertEquals(Arrays.asList("C:3306", "B:3306", "A:3306"), ServerSelection.LEAST_CONNECTIONS.getStrategy().order(servers, cluster));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ServerStatusCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final ServerStatusCache cache = new ServerStatusCache(now::get);
+    private final ConnectionChecker checker = Mockito.mock(ConnectionChecker.class);
+    private final Connection conn = Mockito.mock(Connection.class);
+    private final Connection otherConn = Mockito.mock(Connection.class);
+
+    @Test
+    public void usesCachedStatusForAllConnectionsToSameServerWhileFresh() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.OK);
+        ConnectionChecker cachingChecker = cache.cachingChecker("A:3306", 1000, checker);
+
+        assertEquals(ConnectionStatus.OK, cachingChecker.connectionStatus(conn, 1));
+        now.addAndGet(999);
+        assertEquals(ConnectionStatus.OK, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(otherConn, 1));
+
+        verify(checker, times(1)).connectionStatus(conn, 1);
+        verify(checker, times(0)).connectionStatus(otherConn, 1);
+    }
+
+    @Test
+    public void checksStatusAgainWhenCachedStatusIsTooOld() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.OK).thenReturn(ConnectionStatus.BEHIND);
+        ConnectionChecker cachingChecker = cache.cachingChecker("A:3306", 1000, checker);
+
+        assertEquals(ConnectionStatus.OK, cachingChecker.connectionStatus(conn, 1));
+        now.addAndGet(1000);
+        assertEquals(ConnectionStatus.BEHIND, cachingChecker.connectionStatus(conn, 1));
+    }
+
+    @Test
+    public void checksClosedConnectionItselfEvenWhenServerStatusIsCached() throws SQLException {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.OK);
+        when(checker.connectionStatus(otherConn, 1)).thenReturn(ConnectionStatus.DEAD);
+        when(otherConn.isClosed()).thenReturn(true);
+
+        assertEquals(ConnectionStatus.OK, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(conn, 1));
+        assertEquals(ConnectionStatus.DEAD, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(otherConn, 1));
+    }
+
+    @Test
+    public void checksConnectionItselfWhenItsOwnCheckIsTooOld() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.OK);
+        when(checker.connectionStatus(otherConn, 1)).thenReturn(ConnectionStatus.DEAD);
+        ConnectionChecker otherConnChecker = cache.cachingChecker("A:3306", 1000, checker);
+        now.addAndGet(1000);
+
+        assertEquals(ConnectionStatus.OK, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(conn, 1));
+        assertEquals(ConnectionStatus.DEAD, otherConnChecker.connectionStatus(otherConn, 1));
+    }
+
+    @Test
+    public void doesNotCacheDeadStatus() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.DEAD);
+        when(checker.connectionStatus(otherConn, 1)).thenReturn(ConnectionStatus.OK);
+
+        assertEquals(ConnectionStatus.DEAD, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(conn, 1));
+        assertEquals(ConnectionStatus.OK, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(otherConn, 1));
+    }
+
+    @Test
+    public void serversAreCachedSeparately() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.OK);
+        when(checker.connectionStatus(otherConn, 1)).thenReturn(ConnectionStatus.STOPPED);
+
+        assertEquals(ConnectionStatus.OK, cache.cachingChecker("A:3306", 1000, checker).connectionStatus(conn, 1));
+        assertEquals(ConnectionStatus.STOPPED, cache.cachingChecker("B:3306", 1000, checker).connectionStatus(otherConn, 1));
+    }
+
+    @Test
+    public void cachedStatusIsLookedUpWithoutLoadingIt() {
+        when(checker.connectionStatus(conn, 1)).thenReturn(ConnectionStatus.BEHIND);
+
+        assertEquals(Optional.empty(), cache.cachedStatus("A:3306", 1000));
+        cache.cachingChecker("A:3306", 1000, checker).connectionStatus(conn, 1);
+        assertEquals(Optional.of(ConnectionStatus.BEHIND), cache.cachedStatus("A:3306", 1000));
+        now.addAndGet(1000);
+        assertEquals(Optional.empty(), cache.cachedStatus("A:3306", 1000));
+    }
+}
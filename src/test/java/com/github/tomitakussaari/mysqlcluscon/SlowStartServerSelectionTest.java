@@ -0,0 +1,64 @@
+package com.github.tomitakussaari.mysqlcluscon;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SlowStartServerSelectionTest {
+
+    private final List<String> servers = Arrays.asList("A:3306", "B:3306", "C:3306");
+    private final ServerSelectionStrategy inGivenOrder = (servers, cluster) -> new ArrayList<>(servers);
+    private final ClusterState cluster = new ClusterState(new ServerBlackList());
+    private long now = 10000;
+    private double random;
+
+    private final SlowStartServerSelection selection = new SlowStartServerSelection(inGivenOrder, 1000, () -> now, () -> random);
+
+    @Test
+    public void keepsOrderOfServersThatHaveNotRecovered() {
+        random = 0.99;
+        assertEquals(servers, selection.order(servers, cluster));
+    }
+
+    @Test
+    public void movesRecoveredServerToEndWhenItDoesNotGetItsTurn() {
+        cluster.recovered("A:3306", now - 500);
+        random = 0.6;
+        assertEquals(Arrays.asList("B:3306", "C:3306", "A:3306"), selection.order(servers, cluster));
+    }
+
+    @Test
+    public void weightOfRecoveredServerGrowsLinearly() {
+        cluster.recovered("A:3306", now);
+        random = SlowStartServerSelection.initialWeight - 0.01;
+        assertEquals(servers, selection.order(servers, cluster));
+        random = SlowStartServerSelection.initialWeight + 0.01;
+        assertEquals(Arrays.asList("B:3306", "C:3306", "A:3306"), selection.order(servers, cluster));
+
+        now += 500;
+        random = 0.54;
+        assertEquals(servers, selection.order(servers, cluster));
+        random = 0.56;
+        assertEquals(Arrays.asList("B:3306", "C:3306", "A:3306"), selection.order(servers, cluster));
+    }
+
+    @Test
+    public void serverGetsFullWeightAfterSlowStartWindow() {
+        cluster.recovered("A:3306", now - 1000);
+        random = 0.99;
+        assertEquals(servers, selection.order(servers, cluster));
+    }
+
+    @Test
+    public void serverComingBackFromBlackListIsRecovered() {
+        ServerBlackList blackList = new ServerBlackList(() -> now - 1100, 1000);
+        ClusterState clusterWithBlackList = new ClusterState(blackList);
+        blackList.blackList("B:3306");
+        random = 0.99;
+        assertEquals(Arrays.asList("A:3306", "C:3306", "B:3306"), selection.order(servers, clusterWithBlackList));
+    }
+}
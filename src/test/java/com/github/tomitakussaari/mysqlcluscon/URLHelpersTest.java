@@ -144,6 +144,67 @@ public class URLHelpersTest {
         assertEquals("jdbc:mysql://server.domain.fi:12345/database?foobar=true&barfoo=false", URLHelpers.parse(url).asJdbcConnectUrl("server.domain.fi:12345"));
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void queryParametersCannotBeModified() throws SQLException {
+        URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://server.domain.fi/database?foobar=true").queryParameters.put("foo", null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void queryParameterValuesCannotBeModified() throws SQLException {
+        URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://server.domain.fi/database?foobar=true").queryParameters.get("foobar").add("false");
+    }
+
+    @Test
+    public void rendersConnectUrlOfEachServerOnlyOnce() throws SQLException {
+        URLHelpers.URLInfo urlInfo = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://serverOne,serverTwo/database?foobar=true");
+        assertEquals("jdbc:mysql://serverOne:3306/database?foobar=true", urlInfo.asJdbcConnectUrl("serverOne:3306"));
+        assertSame(urlInfo.asJdbcConnectUrl("serverOne:3306"), urlInfo.asJdbcConnectUrl("serverOne:3306"));
+        assertSame(urlInfo.asJdbcConnectUrl("serverTwo:3306"), urlInfo.asJdbcConnectUrl("serverTwo:3306"));
+    }
+
+    @Test
+    public void addsDefaultQueryParameterOnlyWhenMissing() throws SQLException {
+        URLHelpers.URLInfo withTimeout = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://serverOne/database?connectTimeout=100");
+        assertSame(withTimeout, withTimeout.withDefaultQueryParameter("connectTimeout", "500"));
+
+        URLHelpers.URLInfo withoutTimeout = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://serverOne/database?foobar=true");
+        URLHelpers.URLInfo withDefaultTimeout = withoutTimeout.withDefaultQueryParameter("connectTimeout", "500");
+        assertEquals("jdbc:mysql://serverOne:3306/database?foobar=true&connectTimeout=500", withDefaultTimeout.asJdbcConnectUrl("serverOne:3306"));
+        assertFalse(withoutTimeout.queryParameters.containsKey("connectTimeout"));
+    }
+
+    @Test
+    public void urlInfosOfSameUrlAreEqual() throws SQLException {
+        String url = "jdbc:myscluscon:mysql:read_cluster://serverOne,serverTwo/database?foobar=true";
+        assertEquals(URLHelpers.parse(url), URLHelpers.parse(url));
+        assertEquals(URLHelpers.parse(url).hashCode(), URLHelpers.parse(url).hashCode());
+        assertNotEquals(URLHelpers.parse(url), URLHelpers.parse(url + "&barfoo=false"));
+    }
+
+    @Test
+    public void parsesLongParameters() throws SQLException {
+        Map<String, List<String>> parameters = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A/db?slowStartMs=3000000000").queryParameters;
+        assertEquals(3000000000L, URLHelpers.getLongParameter(parameters, "slowStartMs", 0));
+        assertEquals(5L, URLHelpers.getLongParameter(parameters, "gtidWaitMs", 5));
+    }
+
+    @Test
+    public void invalidNumericParameterIsReportedWithItsName() throws SQLException {
+        Map<String, List<String>> parameters = URLHelpers.parse("jdbc:myscluscon:mysql:read_cluster://A/db?maxPoolSize=ten&slowStartMs=3000000000").queryParameters;
+        try {
+            URLHelpers.getIntParameter(parameters, "maxPoolSize", 10);
+            fail("should have failed to parse");
+        } catch (SQLException e) {
+            assertEquals("Invalid value for url parameter maxPoolSize: ten", e.getMessage());
+        }
+        try {
+            URLHelpers.getIntParameter(parameters, "slowStartMs", 0);
+            fail("should have failed to parse");
+        } catch (SQLException e) {
+            assertEquals("Invalid value for url parameter slowStartMs: 3000000000", e.getMessage());
+        }
+    }
+
     @Test(expected = SQLException.class)
     public void decodeWithInvalidEncodingThrowsSqlException() throws SQLException {
         URLHelpers.decode("%C3%B6%C3%A4%C3%A5", "invalid_encoding");
@@ -1,5 +1,6 @@
 package com.github.tomitakussaari.mysqlcluscon.galera;
 
+import com.github.tomitakussaari.mysqlcluscon.CheckResult;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionStatus;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,9 +11,22 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -30,54 +44,163 @@ public class GaleraClusterConnectionCheckerTest {
 
     @Test
     public void allIsGoodCase() throws SQLException {
-        when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
-        when(statement.executeQuery("SHOW STATUS like 'wsrep_ready'")).thenReturn(resultSet);
-        when(resultSet.next()).thenReturn(true);
-        when(resultSet.getString("Value")).thenReturn("ON");
+        mockStatus("ON", "Synced", "0", "0.000000");
         assertEquals(ConnectionStatus.OK, clusterConnectionChecker.connectionStatus(conn));
         verify(resultSet).close();
         verify(statement).close();
     }
 
     @Test
-    public void connectionReportsItsNotValid() throws SQLException {
-        when(conn.isValid(anyInt())).thenReturn(false);
+    public void onlyReadyNodeIsConsideredOkWhenOtherVariablesAreMissing() throws SQLException {
+        mockRows("wsrep_ready", "ON");
+        assertEquals(ConnectionStatus.OK, clusterConnectionChecker.connectionStatus(conn));
+    }
+
+    @Test
+    public void deadWhenStatusQueryFails() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenThrow(new SQLException("Communications link failure"));
         assertEquals(ConnectionStatus.DEAD, clusterConnectionChecker.connectionStatus(conn));
+        verify(statement).close();
     }
 
     @Test
     public void replicationNotRunning() throws SQLException {
-        when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
-        when(statement.executeQuery("SHOW STATUS like 'wsrep_ready'")).thenReturn(resultSet);
-        when(resultSet.next()).thenReturn(true);
-        when(resultSet.getString("Value")).thenReturn("OFF");
+        mockStatus("OFF", "Synced", "0", "0.000000");
         assertEquals(ConnectionStatus.STOPPED, clusterConnectionChecker.connectionStatus(conn));
         verify(resultSet).close();
         verify(statement).close();
 
     }
 
+    @Test
+    public void donorNodeIsBehind() throws SQLException {
+        mockStatus("ON", "Donor/Desynced", "0", "0.000000");
+        assertEquals(ConnectionStatus.BEHIND, clusterConnectionChecker.connectionStatus(conn));
+    }
+
+    @Test
+    public void joinedNodeIsBehind() throws SQLException {
+        mockStatus("ON", "Joined", "0", "0.000000");
+        assertEquals(ConnectionStatus.BEHIND, clusterConnectionChecker.connectionStatus(conn));
+    }
+
+    @Test
+    public void nodeWithLongReceiveQueueIsBehind() throws SQLException {
+        mockStatus("ON", "Synced", "101", "0.000000");
+        assertEquals(CheckResult.withReceiveQueue(ConnectionStatus.BEHIND, 101), clusterConnectionChecker.check(conn, 1));
+    }
+
+    @Test
+    public void nodePausedByFlowControlIsBehind() throws SQLException {
+        mockStatus("ON", "Synced", "0", "0.200000");
+        assertEquals(ConnectionStatus.BEHIND, clusterConnectionChecker.connectionStatus(conn));
+    }
+
+    @Test
+    public void reportsReceiveQueueLength() throws SQLException {
+        mockStatus("ON", "Synced", "12", "0.000000");
+        assertEquals(CheckResult.withReceiveQueue(ConnectionStatus.OK, 12), clusterConnectionChecker.check(conn, 1));
+    }
+
+    @Test
+    public void nodeWithinConfiguredThresholdsIsOk() throws SQLException {
+        mockStatus("ON", "Synced", "10", "0.4");
+        assertEquals(ConnectionStatus.OK, configuredChecker(10, 0.5).connectionStatus(conn));
+    }
+
+    @Test
+    public void nodeOverConfiguredThresholdIsBehind() throws SQLException {
+        mockStatus("ON", "Synced", "11", "0.4");
+        assertEquals(ConnectionStatus.BEHIND, configuredChecker(10, 0.5).connectionStatus(conn));
+    }
+
     @Test
     public void serverWithNoGaleraIsConsideredRunning() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
-        when(statement.executeQuery("SHOW STATUS like 'wsrep_ready'")).thenReturn(resultSet);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(false);
         assertEquals(ConnectionStatus.OK, clusterConnectionChecker.connectionStatus(conn));
     }
 
     @Test
     public void deadWhenExceptionIsThrownWhenCheckingReplication() throws SQLException {
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(conn.createStatement()).thenThrow(new SQLException(""));
         assertEquals(ConnectionStatus.DEAD, clusterConnectionChecker.connectionStatus(conn));
     }
 
     @Test
-    public void deadWhenExceptionIsThrownFromIsValidChek() throws SQLException {
-        when(conn.isValid(anyInt())).thenThrow(new SQLException(""));
-        assertEquals(ConnectionStatus.DEAD, clusterConnectionChecker.connectionStatus(conn));
+    public void doesNotPingConnectionSeparately() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenReturn(resultSet);
+        clusterConnectionChecker.connectionStatus(conn, 3);
+        verify(conn, never()).isValid(anyInt());
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    public void deadWithinTimeoutWhenServerDoesNotAnswerAtAll() throws SQLException {
+        AtomicInteger networkTimeoutInMs = new AtomicInteger();
+        when(conn.createStatement()).thenReturn(statement);
+        doAnswer(invocation -> {
+            networkTimeoutInMs.set((Integer) invocation.getArguments()[1]);
+            return null;
+        }).when(conn).setNetworkTimeout(any(Executor.class), anyInt());
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenAnswer(invocation -> {
+            Thread.sleep(networkTimeoutInMs.get() > 0 ? networkTimeoutInMs.get() : 10000);
+            throw new SQLException("Read timed out");
+        });
+
+        long start = System.nanoTime();
+        assertEquals(ConnectionStatus.DEAD, clusterConnectionChecker.check(conn, 1).getStatus());
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        verify(conn).setNetworkTimeout(any(Executor.class), eq(1000));
+        verify(conn).setNetworkTimeout(any(Executor.class), eq(0));
+    }
+
+    @Test
+    public void keepsNetworkTimeoutOfConnectionWhenItIsAlreadyShorter() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(conn.getNetworkTimeout()).thenReturn(500);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenReturn(resultSet);
+
+        clusterConnectionChecker.check(conn, 1);
+
+        verify(conn, never()).setNetworkTimeout(any(Executor.class), anyInt());
+    }
+
+    @Test
+    public void checksStatusWithGivenStatementWithoutClosingIt() throws SQLException {
+        when(statement.getConnection()).thenReturn(conn);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenReturn(resultSet);
+        assertEquals(ConnectionStatus.OK, clusterConnectionChecker.check(statement, 1).getStatus());
+        verify(conn, never()).createStatement();
+        verify(statement, never()).close();
+        verify(resultSet).close();
+    }
+
+    private GaleraClusterConnectionChecker configuredChecker(int maxRecvQueue, double maxFlowControlPaused) {
+        Map<String, List<String>> queryParameters = new HashMap<>();
+        queryParameters.put("maxRecvQueue", Collections.singletonList(String.valueOf(maxRecvQueue)));
+        queryParameters.put("maxFlowControlPaused", Collections.singletonList(String.valueOf(maxFlowControlPaused)));
+        return new GaleraClusterConnectionChecker(queryParameters);
+    }
+
+    private void mockStatus(String ready, String stateComment, String recvQueue, String flowControlPaused) throws SQLException {
+        mockRows("wsrep_flow_control_paused", flowControlPaused,
+                "wsrep_local_recv_queue", recvQueue,
+                "wsrep_local_state_comment", stateComment,
+                "wsrep_ready", ready);
+    }
+
+    private void mockRows(String... namesAndValues) throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(GaleraClusterConnectionChecker.statusQuery)).thenReturn(resultSet);
+        final List<String> rows = Arrays.asList(namesAndValues);
+        final int[] row = {-1};
+        when(resultSet.next()).thenAnswer(invocation -> ++row[0] < rows.size() / 2);
+        when(resultSet.getString("Variable_name")).thenAnswer(invocation -> rows.get(row[0] * 2));
+        when(resultSet.getString("Value")).thenAnswer(invocation -> rows.get(row[0] * 2 + 1));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.github.tomitakussaari.mysqlcluscon.galera;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GaleraTopologyDiscoveryTest {
+
+    @Mock
+    private Connection conn;
+    @Mock
+    private Statement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private final GaleraTopologyDiscovery discovery = new GaleraTopologyDiscovery();
+
+    @Test
+    public void discoversIncomingAddressesOfNodes() throws SQLException {
+        mockIncomingAddresses("10.0.0.1:3306,10.0.0.2:3306, 10.0.0.3:3307");
+
+        assertThat(discovery.discoverServers(conn, 2)).containsExactly("10.0.0.1:3306", "10.0.0.2:3306", "10.0.0.3:3307");
+        verify(statement).setQueryTimeout(2);
+        verify(resultSet).close();
+        verify(statement).close();
+    }
+
+    @Test
+    public void skipsNodesWithoutKnownAddress() throws SQLException {
+        mockIncomingAddresses("10.0.0.1:3306,,AUTO");
+
+        assertThat(discovery.discoverServers(conn, 1)).containsExactly("10.0.0.1:3306");
+    }
+
+    @Test
+    public void discoversNothingFromServerWithoutGalera() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(GaleraTopologyDiscovery.incomingAddressesQuery)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        assertThat(discovery.discoverServers(conn, 1)).isEmpty();
+    }
+
+    private void mockIncomingAddresses(String addresses) throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(GaleraTopologyDiscovery.incomingAddressesQuery)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString("Value")).thenReturn(addresses);
+    }
+}
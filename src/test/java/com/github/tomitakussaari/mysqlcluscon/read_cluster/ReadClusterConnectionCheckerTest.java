@@ -1,18 +1,30 @@
 package com.github.tomitakussaari.mysqlcluscon.read_cluster;
 
+import com.github.tomitakussaari.mysqlcluscon.CheckResult;
 import com.github.tomitakussaari.mysqlcluscon.ConnectionStatus;
+import com.github.tomitakussaari.mysqlcluscon.GtidSet;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -31,7 +43,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void allIsGoodCase() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
@@ -43,29 +54,73 @@ public class ReadClusterConnectionCheckerTest {
     }
 
     @Test
-    public void connectionReportsItsNotValid() throws SQLException {
+    public void deadWhenStatusQueryFails() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(false);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenThrow(new SQLException("Communications link failure"));
         assertEquals(ConnectionStatus.DEAD, checker.connectionStatus(conn));
+        verify(statement).close();
     }
 
     @Test
     public void deadWhenExceptionIsThrownWhenCheckingSlaveStatus() throws SQLException {
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(conn.createStatement()).thenThrow(new SQLException(""));
         assertEquals(ConnectionStatus.DEAD, checker.connectionStatus(conn));
     }
 
     @Test
-    public void deadWhenExceptionIsThrownWhenCheckingValidity() throws SQLException {
-        when(conn.isValid(anyInt())).thenThrow(new SQLException(""));
-        assertEquals(ConnectionStatus.DEAD, checker.connectionStatus(conn));
+    public void doesNotPingConnectionSeparately() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        checker.connectionStatus(conn, 3);
+        verify(conn, never()).isValid(anyInt());
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    public void deadWithinTimeoutWhenServerDoesNotAnswerAtAll() throws SQLException {
+        AtomicInteger networkTimeoutInMs = new AtomicInteger();
+        when(conn.createStatement()).thenReturn(statement);
+        doAnswer(invocation -> {
+            networkTimeoutInMs.set((Integer) invocation.getArguments()[1]);
+            return null;
+        }).when(conn).setNetworkTimeout(any(Executor.class), anyInt());
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenAnswer(invocation -> {
+            Thread.sleep(networkTimeoutInMs.get() > 0 ? networkTimeoutInMs.get() : 10000);
+            throw new SQLException("Read timed out");
+        });
+
+        long start = System.nanoTime();
+        assertEquals(ConnectionStatus.DEAD, checker.check(conn, 1).getStatus());
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+        verify(conn).setNetworkTimeout(any(Executor.class), eq(1000));
+        verify(conn).setNetworkTimeout(any(Executor.class), eq(0));
+    }
+
+    @Test
+    public void keepsNetworkTimeoutOfConnectionWhenItIsAlreadyShorter() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(conn.getNetworkTimeout()).thenReturn(500);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+
+        checker.check(conn, 1);
+
+        verify(conn, never()).setNetworkTimeout(any(Executor.class), anyInt());
+    }
+
+    @Test
+    public void checksStatusWithGivenStatementWithoutClosingIt() throws SQLException {
+        when(statement.getConnection()).thenReturn(conn);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        assertEquals(ConnectionStatus.OK, checker.check(statement, 1).getStatus());
+        verify(conn, never()).createStatement();
+        verify(statement, never()).close();
+        verify(resultSet).close();
     }
 
     @Test
     public void ifThreeSecondsBehindMasterThenSlaveIsLaggingBehind() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
@@ -79,7 +134,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void ifTwoSecondsBehindMasterThenSlaveIsOK() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
@@ -93,7 +147,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void isNotSlave() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.next()).thenReturn(false);
 
@@ -103,7 +156,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void dbConsideredDeadWhenNoDbPrivilegesToCheckSlaveStatus() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenThrow(new SQLException("No access", "42000"));
 
         assertEquals(ConnectionStatus.DEAD, checker.connectionStatus(conn));
@@ -112,7 +164,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void slaveIONotRunning() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.getObject("Slave_IO_Running")).thenReturn("no");
         when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
@@ -125,7 +176,6 @@ public class ReadClusterConnectionCheckerTest {
     @Test
     public void slaveSQLNotRunning() throws SQLException {
         when(conn.createStatement()).thenReturn(statement);
-        when(conn.isValid(anyInt())).thenReturn(true);
         when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
         when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
         when(resultSet.getObject("Slave_SQL_Running")).thenReturn("no");
@@ -135,4 +185,70 @@ public class ReadClusterConnectionCheckerTest {
         assertEquals(ConnectionStatus.STOPPED, checker.connectionStatus(conn));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void reportsReplicationLag() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
+        when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
+        when(resultSet.getInt("Seconds_Behind_Master")).thenReturn(5);
+        when(resultSet.next()).thenReturn(true);
+
+        assertEquals(CheckResult.of(ConnectionStatus.BEHIND, 5), checker.check(conn, 1));
+    }
+
+    @Test
+    public void replicationLagIsUnknownWhenSecondsBehindMasterIsNull() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
+        when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
+        when(resultSet.getInt("Seconds_Behind_Master")).thenReturn(0);
+        when(resultSet.wasNull()).thenReturn(true);
+        when(resultSet.next()).thenReturn(true);
+
+        assertEquals(CheckResult.of(ConnectionStatus.OK), checker.check(conn, 1));
+    }
+
+    @Test
+    public void masterHasNoReplicationLag() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        assertEquals(CheckResult.of(ConnectionStatus.OK, 0), checker.check(conn, 1));
+    }
+
+    @Test
+    public void reportsExecutedGtidSetOfMySqlReplica() throws SQLException {
+        mockReplicaWithColumn("Executed_Gtid_Set", "3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5");
+        assertEquals(CheckResult.of(ConnectionStatus.OK, 0).withExecutedGtidSet(GtidSet.parse("3E11FA47-71CA-11E1-9E33-C80AA9429562:1-5")), checker.check(conn, 1));
+    }
+
+    @Test
+    public void reportsExecutedGtidPositionOfMariaDbReplica() throws SQLException {
+        mockReplicaWithColumn("Gtid_Slave_Pos", "0-1-100");
+        assertEquals(CheckResult.of(ConnectionStatus.OK, 0).withExecutedGtidSet(GtidSet.parse("0-1-100")), checker.check(conn, 1));
+    }
+
+    @Test
+    public void executedGtidSetIsUnknownWhenReplicaDoesNotUseGtids() throws SQLException {
+        mockReplicaWithColumn("Executed_Gtid_Set", "");
+        assertEquals(CheckResult.of(ConnectionStatus.OK, 0), checker.check(conn, 1));
+    }
+
+    private void mockReplicaWithColumn(String column, String value) throws SQLException {
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(resultSet);
+        when(resultSet.getObject("Slave_IO_Running")).thenReturn("Yes");
+        when(resultSet.getObject("Slave_SQL_Running")).thenReturn("Yes");
+        when(resultSet.getInt("Seconds_Behind_Master")).thenReturn(0);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("Seconds_Behind_Master");
+        when(metaData.getColumnLabel(2)).thenReturn(column);
+        when(resultSet.getString(2)).thenReturn(value);
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.tomitakussaari.mysqlcluscon.read_cluster;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadClusterTopologyDiscoveryTest {
+
+    @Mock
+    private Connection conn;
+    @Mock
+    private Statement statement;
+    @Mock
+    private ResultSet slaveHosts;
+    @Mock
+    private ResultSet groupMembers;
+
+    private final ReadClusterTopologyDiscovery discovery = new ReadClusterTopologyDiscovery();
+
+    @Test
+    public void discoversSlavesOfMaster() throws SQLException {
+        mockQueries();
+        when(slaveHosts.next()).thenReturn(true, true, true, false);
+        when(slaveHosts.getString("Host")).thenReturn("slave1", "", "slave2");
+        when(slaveHosts.getInt("Port")).thenReturn(3306, 3306, 3307);
+
+        assertThat(discovery.discoverServers(conn, 1)).containsExactly("slave1:3306", "slave2:3307");
+        verify(statement, never()).executeQuery(ReadClusterTopologyDiscovery.groupMembersQuery);
+        verify(statement).close();
+    }
+
+    @Test
+    public void discoversGroupReplicationMembersWhenServerHasNoSlaves() throws SQLException {
+        mockQueries();
+        when(slaveHosts.next()).thenReturn(false);
+        when(groupMembers.next()).thenReturn(true, true, false);
+        when(groupMembers.getString("MEMBER_HOST")).thenReturn("member1", "member2");
+        when(groupMembers.getInt("MEMBER_PORT")).thenReturn(3306, 0);
+
+        assertThat(discovery.discoverServers(conn, 1)).containsExactly("member1:3306", "member2:3306");
+    }
+
+    @Test
+    public void discoversNothingFromServerWithoutSlavesOrGroupReplication() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReadClusterTopologyDiscovery.slaveHostsQuery)).thenReturn(slaveHosts);
+        when(statement.executeQuery(ReadClusterTopologyDiscovery.groupMembersQuery)).thenThrow(new SQLException("Unknown table", "42S02"));
+
+        assertThat(discovery.discoverServers(conn, 1)).isEmpty();
+    }
+
+    private void mockQueries() throws SQLException {
+        when(conn.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReadClusterTopologyDiscovery.slaveHostsQuery)).thenReturn(slaveHosts);
+        when(statement.executeQuery(ReadClusterTopologyDiscovery.groupMembersQuery)).thenReturn(groupMembers);
+    }
+}